@@ -0,0 +1,261 @@
+package ru.yandex.practicum.filmorate.buffer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.index.SimilarFilmsIndex;
+import ru.yandex.practicum.filmorate.index.TrendingIndex;
+import ru.yandex.practicum.filmorate.model.LikePair;
+import ru.yandex.practicum.filmorate.model.LikeStatus;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+@Slf4j
+@Component
+public class LikeWriteBuffer {
+
+    private final FilmRepository filmRepository;
+    private final PopularityLeaderboard leaderboard;
+    private final TrendingIndex trending;
+    private final SimilarFilmsIndex similarIndex;
+    private final boolean enabled;
+    private final int maxPending;
+    private final Path journal;
+
+    private final ConcurrentHashMap<LikePair, Intent> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicLong flushes = new AtomicLong();
+
+    public LikeWriteBuffer(FilmRepository filmRepository, PopularityLeaderboard leaderboard,
+                           TrendingIndex trending, SimilarFilmsIndex similarIndex,
+                           @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                           @Value("${filmorate.likes.write-behind.max-pending:10000}") int maxPending,
+                           @Value("${filmorate.likes.write-behind.journal:./db/pending-likes.journal}") String journal) {
+        this.filmRepository = filmRepository;
+        this.leaderboard = leaderboard;
+        this.trending = trending;
+        this.similarIndex = similarIndex;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+        this.journal = Path.of(journal);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Возвращает изменение числа лайков фильма (-1, 0 или 1); состояние в БД читается только для новой пары.
+    // Чтение БД идёт до записи в карту, чтобы не держать блокировку её сегмента во время запроса
+    public int record(int filmId, int userId, boolean liked, BooleanSupplier persistedState) {
+        LikePair key = new LikePair(filmId, userId);
+        while (true) {
+            Intent intent = pending.get(key);
+            if (intent != null) {
+                // лайк и последующая отмена схлопываются в «чистую» запись, которая при сбросе ничего не пишет
+                if (pending.replace(key, intent, new Intent(intent.persisted(), liked))) {
+                    return delta(intent.desired(), liked);
+                }
+                continue;
+            }
+            long flushesBefore = flushes.get();
+            boolean persisted = persistedState.getAsBoolean();
+            Intent created = new Intent(persisted, liked);
+            // Сброс, прошедший после чтения БД, мог записать эту пару — тогда прочитанное состояние устарело
+            Intent stored = pending.compute(key, (pair, current) ->
+                    current != null || flushes.get() != flushesBefore ? current : created);
+            if (stored == created) {
+                if (pending.size() >= maxPending) {
+                    scheduledFlush();
+                }
+                return delta(persisted, liked);
+            }
+        }
+    }
+
+    // Пакетный вариант record для лайков: статусы пар и их состояние в БД читаются одним вызовом check.
+    // ADDED получают только пары, которые пакет действительно добавил с учётом уже буферизованных лайков
+    public List<LikeStatus> recordLikes(List<LikePair> pairs, Function<List<LikePair>, List<LikeStatus>> check,
+                                        Predicate<LikePair> persistedState) {
+        long flushesBefore = flushes.get();
+        List<LikeStatus> statuses = new ArrayList<>(check.apply(pairs));
+        for (int i = 0; i < pairs.size(); i++) {
+            LikeStatus status = statuses.get(i);
+            if (status != LikeStatus.ADDED && status != LikeStatus.ALREADY_EXISTS) {
+                continue;
+            }
+            LikePair pair = pairs.get(i);
+            boolean persisted = status == LikeStatus.ALREADY_EXISTS;
+            // сброс после пакетного чтения мог записать пару — тогда её состояние перечитывается
+            int delta = record(pair.getFilmId(), pair.getUserId(), true,
+                    () -> flushes.get() == flushesBefore ? persisted : persistedState.test(pair));
+            statuses.set(i, delta > 0 ? LikeStatus.ADDED : LikeStatus.ALREADY_EXISTS);
+        }
+        return statuses;
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.likes.write-behind.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Не удалось сбросить буфер лайков, повтор при следующем запуске", e);
+        }
+    }
+
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            Map<LikePair, Intent> snapshot = new HashMap<>(pending);
+            List<LikePair> likes = new ArrayList<>();
+            List<LikePair> unlikes = new ArrayList<>();
+            snapshot.forEach((pair, intent) -> {
+                if (intent.desired() != intent.persisted()) {
+                    (intent.desired() ? likes : unlikes).add(pair);
+                }
+            });
+            if (!likes.isEmpty()) {
+                filmRepository.addLikes(likes);
+            }
+            if (!unlikes.isEmpty()) {
+                filmRepository.removeLikes(unlikes);
+            }
+            // счётчик растёт до снятия пар с буфера: record, прочитавший БД до записи, это заметит
+            flushes.incrementAndGet();
+            // Пока шёл сброс, пара могла измениться: тогда её новое намерение отсчитывается от только что записанного
+            snapshot.forEach((pair, flushed) -> pending.compute(pair, (key, intent) -> intent == flushed
+                    ? null
+                    : new Intent(flushed.desired(), intent.desired())));
+            log.debug("Буфер лайков сброшен: добавлено={}, удалено={}", likes.size(), unlikes.size());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Не удалось сбросить буфер лайков при остановке, сохраняем в журнал {}", journal, e);
+        }
+        writeJournal();
+    }
+
+    // Индексы к этому моменту уже построены из БД без лайков журнала, поэтому они получают их так же,
+    // как лайки через буфер
+    @PostConstruct
+    public void replayJournal() {
+        if (!Files.exists(journal)) {
+            return;
+        }
+        List<LikePair> likes = new ArrayList<>();
+        List<LikePair> unlikes = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(journal, StandardCharsets.UTF_8)) {
+                String[] parts = line.split(";");
+                if (parts.length == 3) {
+                    LikePair pair = new LikePair(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+                    (Boolean.parseBoolean(parts[2]) ? likes : unlikes).add(pair);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать журнал лайков " + journal, e);
+        }
+        List<LikeStatus> added = likes.isEmpty() ? List.of() : filmRepository.addLikes(likes);
+        for (int i = 0; i < added.size(); i++) {
+            if (added.get(i) == LikeStatus.ADDED) {
+                applyReplayed(likes.get(i), true);
+            }
+        }
+        List<Boolean> removed = filmRepository.removeLikes(unlikes);
+        for (int i = 0; i < removed.size(); i++) {
+            if (removed.get(i)) {
+                applyReplayed(unlikes.get(i), false);
+            }
+        }
+        try {
+            Files.delete(journal);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось удалить журнал лайков " + journal, e);
+        }
+        log.info("Журнал лайков воспроизведён: лайков={}, отмен={}", likes.size(), unlikes.size());
+    }
+
+    // время исходного лайка журнал не хранит, поэтому отмена, как и в буфере, вычитается из текущего часа
+    private void applyReplayed(LikePair pair, boolean liked) {
+        LocalDateTime now = LocalDateTime.now();
+        if (liked) {
+            leaderboard.increment(pair.getFilmId());
+        } else {
+            leaderboard.decrement(pair.getFilmId());
+        }
+        trending.record(pair.getFilmId(), liked ? 1 : -1, now, now);
+        similarIndex.recordLike(pair.getFilmId(), pair.getUserId(), liked);
+    }
+
+    private static int delta(boolean current, boolean liked) {
+        return liked == current ? 0 : liked ? 1 : -1;
+    }
+
+    private void writeJournal() {
+        List<String> lines = new ArrayList<>();
+        pending.forEach((pair, intent) -> {
+            if (intent.desired() != intent.persisted()) {
+                lines.add(pair.getFilmId() + ";" + pair.getUserId() + ";" + intent.desired());
+            }
+        });
+        if (lines.isEmpty()) {
+            return;
+        }
+        try {
+            if (journal.getParent() != null) {
+                Files.createDirectories(journal.getParent());
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(journal, StandardCharsets.UTF_8)) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+            log.warn("В журнал {} сохранено несброшенных лайков: {}", journal, lines.size());
+        } catch (IOException e) {
+            log.error("Не удалось записать журнал лайков, потеряно изменений: {}", lines.size(), e);
+        }
+    }
+
+    private record Intent(boolean persisted, boolean desired) {
+    }
+}
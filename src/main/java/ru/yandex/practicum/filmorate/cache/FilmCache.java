@@ -0,0 +1,233 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+@Slf4j
+@Component
+public class FilmCache {
+
+    private final int maxSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Integer, Film> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    // Логические часы под lock: загрузка, начатая до инвалидации своего id или до clear(),
+    // не кладёт в кэш устаревший фильм; инвалидации других id её не отменяют
+    private long clock;
+    private long clearedAt;
+    private int loadsInFlight;
+    // Отметки нужны только пока идут загрузки, поэтому карта очищается, когда их не остаётся
+    private final Map<Integer, Long> invalidatedAt = new HashMap<>();
+
+    public FilmCache(@Value("${filmorate.cache.films.max-size:10000}") int maxSize) {
+        this.maxSize = Math.max(0, maxSize);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Film> eldest) {
+                if (size() > FilmCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        log.info("Кэш фильмов: максимум {} записей", this.maxSize);
+    }
+
+    public Optional<Film> get(int id, IntFunction<Optional<Film>> loader) {
+        Film cached = lookup(id);
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(copy(cached));
+        }
+        misses.increment();
+        long startedAt = beginLoad();
+        try {
+            Optional<Film> loaded = loader.apply(id);
+            loaded.ifPresent(film -> store(film, startedAt));
+            return loaded;
+        } finally {
+            endLoad();
+        }
+    }
+
+    public List<Film> getAll(List<Integer> ids, Function<List<Integer>, List<Film>> loader) {
+        Map<Integer, Film> found = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : ids) {
+            Film cached = lookup(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        hits.add(found.size());
+        misses.add(missing.size());
+        if (!missing.isEmpty()) {
+            long startedAt = beginLoad();
+            try {
+                for (Film film : loader.apply(missing)) {
+                    store(film, startedAt);
+                    found.put(film.getId(), film);
+                }
+            } finally {
+                endLoad();
+            }
+        }
+        List<Film> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Film film = found.get(id);
+            if (film != null) {
+                result.add(copy(film));
+            }
+        }
+        return result;
+    }
+
+    public Optional<Film> peek(int id) {
+        return Optional.ofNullable(lookup(id));
+    }
+
+    public void invalidate(int id) {
+        invalidations.increment();
+        evict(id);
+        // Внутри транзакции повторяем после коммита: иначе параллельное чтение успеет закэшировать старую версию
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(id);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            clearedAt = ++clock;
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public CacheStats stats() {
+        lock.lock();
+        try {
+            return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(),
+                    entries.size(), maxSize);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Film lookup(int id) {
+        if (maxSize == 0) {
+            return null;
+        }
+        lock.lock();
+        try {
+            return entries.get(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(Film film, long startedAt) {
+        if (maxSize == 0) {
+            return;
+        }
+        Film snapshot = copy(film);
+        lock.lock();
+        try {
+            if (clearedAt <= startedAt && invalidatedAt.getOrDefault(snapshot.getId(), 0L) <= startedAt) {
+                entries.put(snapshot.getId(), snapshot);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long beginLoad() {
+        lock.lock();
+        try {
+            loadsInFlight++;
+            return clock;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void endLoad() {
+        lock.lock();
+        try {
+            if (--loadsInFlight == 0) {
+                invalidatedAt.clear();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evict(int id) {
+        lock.lock();
+        try {
+            if (loadsInFlight > 0) {
+                invalidatedAt.put(id, ++clock);
+            }
+            entries.remove(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Film изменяем, поэтому в кэше лежит своя копия и наружу тоже отдаются копии
+    private static Film copy(Film source) {
+        Film film = new Film();
+        film.setId(source.getId());
+        film.setName(source.getName());
+        film.setDescription(source.getDescription());
+        film.setReleaseDate(source.getReleaseDate());
+        film.setDuration(source.getDuration());
+        film.setVersion(source.getVersion());
+        film.setLikes(source.getLikes().copy());
+        LinkedHashSet<Genre> genres = new LinkedHashSet<>();
+        for (Genre genre : source.getGenres()) {
+            Genre g = new Genre();
+            g.setId(genre.getId());
+            g.setName(genre.getName());
+            g.setDescription(genre.getDescription());
+            genres.add(g);
+        }
+        film.setGenres(genres);
+        if (source.getMpaRating() != null) {
+            Mpa mpa = source.getMpaRating();
+            film.setMpaRating(new Mpa(mpa.getId(), mpa.getName(), mpa.getDescription()));
+        }
+        return film;
+    }
+}
@@ -6,11 +6,17 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.cache.CacheStats;
 import ru.yandex.practicum.filmorate.dto.FilmCreateRequest;
 import ru.yandex.practicum.filmorate.dto.FilmResponse;
 import ru.yandex.practicum.filmorate.dto.FilmUpdateRequest;
+import ru.yandex.practicum.filmorate.dto.LikeBatchResponse;
 import ru.yandex.practicum.filmorate.mapper.FilmDtoMapper;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikePair;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.util.List;
@@ -20,8 +26,14 @@ import java.util.List;
 @RestController
 @RequestMapping("/films")
 public final class FilmController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private final FilmService filmService;
     private final FilmDtoMapper filmDtoMapper;
+    private final NdjsonExporter ndjsonExporter;
+    // Счётчик ревизий популярных фильмов живёт в памяти, поэтому в ETag добавляется момент старта
+    private final long startedAt = System.currentTimeMillis();
 
     @PostMapping
     public ResponseEntity<FilmResponse> addFilm(@Valid @RequestBody final FilmCreateRequest request) {
@@ -31,6 +43,14 @@ public final class FilmController {
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
+    @PostMapping("/bulk")
+    public ResponseEntity<List<FilmResponse>> addFilms(@RequestBody final List<@Valid FilmCreateRequest> requests) {
+        List<Film> films = requests.stream().map(filmDtoMapper::toDomain).toList();
+        List<FilmResponse> response = filmDtoMapper.toResponseList(filmService.createFilms(films));
+        log.info("Пакетно создано фильмов: {}", response.size());
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+
     @PutMapping
     public ResponseEntity<FilmResponse> updateFilm(@Valid @RequestBody final FilmUpdateRequest request) {
         Film updatedFilm = filmService.updateFilm(filmDtoMapper.toDomain(request));
@@ -40,17 +60,46 @@ public final class FilmController {
     }
 
     @GetMapping
-    public List<FilmResponse> getAllFilms() {
-        log.info("Запрос всех фильмов");
-        return filmDtoMapper.toResponseList(filmService.getAllFilms());
+    public ResponseEntity<List<FilmResponse>> getAllFilms(
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            log.info("Запрос всех фильмов");
+            return ResponseEntity.ok(filmDtoMapper.toResponseList(filmService.getAllFilms()));
+        }
+        log.info("Запрос страницы фильмов: after={}, limit={}", after, limit);
+        Page<Film> page = filmService.getFilmsPage(after == null ? 0 : after,
+                limit == null ? DEFAULT_PAGE_SIZE : limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(filmDtoMapper.toResponseList(page.getItems()));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportFilms() {
+        log.info("Выгрузка всех фильмов в NDJSON");
+        return ndjsonExporter.export(sink ->
+                filmService.exportFilms(film -> sink.accept(filmDtoMapper.toResponse(film))));
     }
 
     @GetMapping("/{id}")
-    public FilmResponse getFilmById(@PathVariable int id) {
+    public FilmResponse getFilmById(@PathVariable int id, WebRequest request) {
         log.info("Запрос фильма id={}", id);
+        if (request.checkNotModified("film-" + id + "-" + filmService.getFilmVersion(id))) {
+            return null;
+        }
         return filmDtoMapper.toResponse(filmService.getFilmById(id));
     }
 
+    @GetMapping("/{id}/similar")
+    public List<FilmResponse> getSimilarFilms(@PathVariable int id,
+                                              @RequestParam(defaultValue = "10") int count) {
+        log.info("Запрос похожих фильмов: filmId={}, count={}", id, count);
+        return filmDtoMapper.toResponseList(filmService.getSimilarFilms(id, count));
+    }
+
     @PutMapping("/{id}/like/{userId}")
     @ResponseStatus(HttpStatus.OK)
     public void addLike(@PathVariable int id, @PathVariable int userId) {
@@ -65,10 +114,53 @@ public final class FilmController {
         filmService.removeLike(id, userId);
     }
 
+    @PostMapping("/likes/batch")
+    public LikeBatchResponse addLikes(@RequestBody final List<LikePair> likes) {
+        LikeBatchResponse response = filmDtoMapper.toLikeBatchResponse(likes, filmService.addLikes(likes));
+        log.info("Пакет лайков: добавлено={}, уже были={}, ошибок={}",
+                response.getAdded(), response.getAlreadyExisting(), response.getFailures().size());
+        return response;
+    }
+
+    @GetMapping("/search")
+    public List<FilmResponse> searchFilms(@RequestParam String q,
+                                          @RequestParam(defaultValue = "10") int count) {
+        log.info("Поиск фильмов: q={}, count={}", q, count);
+        return filmDtoMapper.toResponseList(filmService.searchFilms(q, count));
+    }
+
+    @GetMapping("/suggest")
+    public List<FilmResponse> suggestFilms(@RequestParam String prefix,
+                                           @RequestParam(defaultValue = "10") int count) {
+        log.debug("Подсказки фильмов: prefix={}, count={}", prefix, count);
+        return filmDtoMapper.toResponseList(filmService.suggestFilms(prefix, count));
+    }
+
+    @GetMapping("/trending")
+    public List<FilmResponse> getTrendingFilms(@RequestParam(defaultValue = "24h") String window,
+                                               @RequestParam(defaultValue = "10") int count) {
+        log.info("Запрос трендовых фильмов: window={}, count={}", window, count);
+        return filmDtoMapper.toResponseList(filmService.getTrendingFilms(window, count));
+    }
+
     @GetMapping("/popular")
     public List<FilmResponse> getPopularFilms(
-            @RequestParam(defaultValue = "10") int count) {
-        log.info("Запрос популярных фильмов: count={}", count);
-        return filmDtoMapper.toResponseList(filmService.getTopFilms(count));
+            @RequestParam(defaultValue = "10") int count,
+            @RequestParam(required = false) Integer genreId,
+            @RequestParam(required = false) Integer year,
+            WebRequest request) {
+        log.info("Запрос популярных фильмов: count={}, genreId={}, year={}", count, genreId, year);
+        String etag = "popular-" + startedAt + "-" + filmService.getPopularRevision() + "-" + count
+                + "-" + genreId + "-" + year;
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return filmDtoMapper.toResponseList(filmService.getTopFilms(count, genreId, year));
+    }
+
+    @GetMapping("/cache/stats")
+    public CacheStats getCacheStats() {
+        log.info("Запрос статистики кэша фильмов");
+        return filmService.getCacheStats();
     }
 }
@@ -6,22 +6,32 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.dto.FriendRecommendationResponse;
+import ru.yandex.practicum.filmorate.dto.SeparationResponse;
 import ru.yandex.practicum.filmorate.dto.UserCreateRequest;
 import ru.yandex.practicum.filmorate.dto.UserResponse;
 import ru.yandex.practicum.filmorate.dto.UserUpdateRequest;
 import ru.yandex.practicum.filmorate.mapper.UserDtoMapper;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.List;
+import java.util.OptionalInt;
 
 @Slf4j
 @RequiredArgsConstructor
 @RestController
 @RequestMapping("/users")
 public class UserController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private final UserService userService;
     private final UserDtoMapper userDtoMapper;
+    private final NdjsonExporter ndjsonExporter;
 
     @PostMapping
     public ResponseEntity<UserResponse> createUser(@Valid @RequestBody final UserCreateRequest request) {
@@ -40,14 +50,36 @@ public class UserController {
     }
 
     @GetMapping
-    public List<UserResponse> getAllUsers() {
-        log.debug("Запрос всех пользователей");
-        return userDtoMapper.toResponseList(userService.getAllUsers());
+    public ResponseEntity<List<UserResponse>> getAllUsers(
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            log.debug("Запрос всех пользователей");
+            return ResponseEntity.ok(userDtoMapper.toResponseList(userService.getAllUsers()));
+        }
+        log.debug("Запрос страницы пользователей: after={}, limit={}", after, limit);
+        Page<User> page = userService.getUsersPage(after == null ? 0 : after,
+                limit == null ? DEFAULT_PAGE_SIZE : limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(userDtoMapper.toResponseList(page.getItems()));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        log.info("Выгрузка всех пользователей в NDJSON");
+        return ndjsonExporter.export(sink ->
+                userService.exportUsers(user -> sink.accept(userDtoMapper.toResponse(user))));
     }
 
     @GetMapping("/{id}")
-    public UserResponse getUserById(@PathVariable int id) {
+    public UserResponse getUserById(@PathVariable int id, WebRequest request) {
         log.debug("Запрос пользователя id={}", id);
+        if (request.checkNotModified("user-" + id + "-" + userService.getUserVersion(id))) {
+            return null;
+        }
         return userDtoMapper.toResponse(userService.getUserById(id));
     }
 
@@ -66,8 +98,12 @@ public class UserController {
     }
 
     @GetMapping("/{id}/friends")
-    public List<UserResponse> getFriends(@PathVariable int id) {
+    public List<UserResponse> getFriends(@PathVariable int id, WebRequest request) {
         log.debug("Запрос друзей пользователя id={}", id);
+        String etag = "friends-" + id + "-" + Long.toHexString(userService.getFriendsVersion(id));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         return userDtoMapper.toResponseList(userService.getFriends(id));
     }
 
@@ -76,4 +112,33 @@ public class UserController {
         log.debug("Запрос общих друзей: userId={}, otherId={}", id, otherId);
         return userDtoMapper.toResponseList(userService.getCommonFriends(id, otherId));
     }
+
+    @GetMapping("/{id}/friends/of-friends")
+    public List<UserResponse> getFriendsOfFriends(@PathVariable int id,
+                                                  @RequestParam(defaultValue = "100") int limit) {
+        log.debug("Запрос друзей друзей: userId={}, limit={}", id, limit);
+        return userDtoMapper.toResponseList(userService.getFriendsOfFriends(id, limit));
+    }
+
+    @GetMapping("/suggest")
+    public List<UserResponse> suggestUsers(@RequestParam String prefix,
+                                           @RequestParam(defaultValue = "10") int count) {
+        log.debug("Подсказки пользователей: prefix={}, count={}", prefix, count);
+        return userDtoMapper.toResponseList(userService.suggestUsers(prefix, count));
+    }
+
+    @GetMapping("/{id}/recommendations/friends")
+    public List<FriendRecommendationResponse> getFriendRecommendations(@PathVariable int id,
+                                                                       @RequestParam(defaultValue = "10") int limit) {
+        log.debug("Запрос рекомендаций друзей: userId={}, limit={}", id, limit);
+        return userDtoMapper.toRecommendationResponseList(userService.getFriendRecommendations(id, limit));
+    }
+
+    @GetMapping("/{id}/degrees/{otherId}")
+    public SeparationResponse getDegreesOfSeparation(@PathVariable int id, @PathVariable int otherId,
+                                                     @RequestParam(defaultValue = "6") int maxDepth) {
+        log.debug("Запрос степени связи: userId={}, otherId={}, maxDepth={}", id, otherId, maxDepth);
+        OptionalInt degree = userService.getDegreesOfSeparation(id, otherId, maxDepth);
+        return new SeparationResponse(id, otherId, maxDepth, degree.isPresent() ? degree.getAsInt() : null);
+    }
 }
@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import lombok.Data;
+
+@Data
+public class FriendRecommendationResponse {
+    private UserResponse user;
+    private int mutualFriends;
+}
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class LikeBatchResponse {
+    private int added;
+    private int alreadyExisting;
+    private List<Failure> failures = new ArrayList<>();
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Failure {
+        private int index;
+        private Integer filmId;
+        private Integer userId;
+        private String reason;
+    }
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeparationResponse {
+    private int userId;
+    private int otherId;
+    private int maxDepth;
+    // null, если связь не найдена в пределах maxDepth
+    private Integer degree;
+}
@@ -0,0 +1,239 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.util.LongTopK;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Обратный индекс по словам названия и описания: слово -> отсортированные id фильмов.
+// Слова хранятся в словаре один раз, у фильма — только номера его слов, чтобы при обновлении убрать старые
+@Slf4j
+@Component
+public class FilmSearchIndex {
+
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MAX_QUERY_TERMS = 10;
+    private static final int MAX_RANKED_LIKES = (1 << 24) - 1;
+    // Предел просмотра рейтинга популярности, когда все слова запроса частые
+    private static final int MAX_POPULAR_SCAN = 20_000;
+
+    private final FilmRepository filmRepository;
+    private final PopularityLeaderboard leaderboard;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final List<SortedIntSet> postings = new ArrayList<>();
+    private final Map<Integer, int[]> termsByFilm = new HashMap<>();
+
+    public FilmSearchIndex(FilmRepository filmRepository, PopularityLeaderboard leaderboard) {
+        this.filmRepository = filmRepository;
+        this.leaderboard = leaderboard;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            termIds.clear();
+            postings.clear();
+            termsByFilm.clear();
+            filmRepository.exportSearchTexts(this::put);
+            log.info("Поисковый индекс построен: {} фильмов, {} слов", termsByFilm.size(), termIds.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Film film) {
+        lock.writeLock().lock();
+        try {
+            int[] previous = termsByFilm.remove(film.getId());
+            if (previous != null) {
+                for (int termId : previous) {
+                    postings.get(termId).remove(film.getId());
+                }
+            }
+            put(film);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Фильмы по убыванию числа совпавших слов запроса, затем по лайкам, затем по id
+    public List<Integer> search(String query, int count) {
+        List<String> terms = tokenize(query);
+        // запрос только из знаков и однобуквенных слов ничего не ищет, а не отдаёт популярные фильмы
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        if (terms.size() > MAX_QUERY_TERMS) {
+            terms = terms.subList(0, MAX_QUERY_TERMS);
+        }
+        lock.readLock().lock();
+        try {
+            List<SortedIntSet> lists = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Integer termId = termIds.get(term);
+                if (termId != null && !postings.get(termId).isEmpty()) {
+                    lists.add(postings.get(termId));
+                }
+            }
+            return lists.size() == terms.size() && allTermsCommon(lists, count)
+                    ? rankByPopularity(lists, count)
+                    : rank(lists, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Нижний регистр, «ё» как «е», разбиение по всему, что не буква и не цифра; повторы убираются
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        String folded = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (i - start >= MIN_TOKEN_LENGTH) {
+                    tokens.add(folded.substring(start, i));
+                }
+                start = -1;
+            }
+        }
+        return List.copyOf(tokens);
+    }
+
+    private void put(Film film) {
+        Set<String> tokens = new LinkedHashSet<>(tokenize(film.getName()));
+        tokens.addAll(tokenize(film.getDescription()));
+        int[] terms = new int[tokens.size()];
+        int i = 0;
+        for (String token : tokens) {
+            int termId = termIds.computeIfAbsent(token, key -> {
+                postings.add(new SortedIntSet());
+                return postings.size() - 1;
+            });
+            postings.get(termId).add(film.getId());
+            terms[i++] = termId;
+        }
+        termsByFilm.put(film.getId(), terms);
+    }
+
+    // Если фильмов со всеми словами ожидается много, первые count из них проще найти, идя по рейтингу лайков:
+    // верхний уровень (совпали все слова) упорядочен так же, как рейтинг
+    private boolean allTermsCommon(List<SortedIntSet> lists, int count) {
+        double expectedShare = 1;
+        for (SortedIntSet list : lists) {
+            expectedShare *= (double) list.size() / Math.max(1, termsByFilm.size());
+        }
+        return count / expectedShare <= MAX_POPULAR_SCAN / 4.0;
+    }
+
+    private List<Integer> rankByPopularity(List<SortedIntSet> lists, int count) {
+        List<Integer> found = leaderboard.topMatching(count, filmId -> {
+            for (SortedIntSet list : lists) {
+                if (!list.contains(filmId)) {
+                    return false;
+                }
+            }
+            return true;
+        }, MAX_POPULAR_SCAN);
+        // предположение о частоте не подтвердилось — считаем честно
+        return found.size() == count ? found : rank(lists, count);
+    }
+
+    // Фильмы из одного самого длинного списка совпали лишь по одному слову, поэтому сначала сливаются остальные
+    // списки (с проверкой вхождения в длинный), а длинный перебирается, только если результат ещё не заполнен
+    private List<Integer> rank(List<SortedIntSet> lists, int count) {
+        if (lists.isEmpty() || count < 1) {
+            return List.of();
+        }
+        List<SortedIntSet> sorted = new ArrayList<>(lists);
+        sorted.sort(Comparator.comparingInt(SortedIntSet::size));
+        SortedIntSet longest = sorted.remove(sorted.size() - 1);
+        LongTopK best = new LongTopK(count);
+        merge(sorted, longest, best);
+        if (sorted.isEmpty() || levelOf(best.threshold()) < 2) {
+            for (int i = 0; i < longest.size(); i++) {
+                int filmId = longest.get(i);
+                if (!containsAny(sorted, filmId)) {
+                    offer(best, 1, filmId);
+                }
+            }
+        }
+        long[] ranked = best.toSortedArray();
+        List<Integer> result = new ArrayList<>(ranked.length);
+        for (long key : ranked) {
+            result.add(Integer.MAX_VALUE - (int) (key & Integer.MAX_VALUE));
+        }
+        return result;
+    }
+
+    // Слияние отсортированных списков: каждый id встречается один раз вместе с числом списков, где он есть
+    private void merge(List<SortedIntSet> lists, SortedIntSet longest, LongTopK best) {
+        int[] cursors = new int[lists.size()];
+        while (true) {
+            int filmId = Integer.MAX_VALUE;
+            boolean exhausted = true;
+            for (int i = 0; i < cursors.length; i++) {
+                if (cursors[i] < lists.get(i).size()) {
+                    exhausted = false;
+                    filmId = Math.min(filmId, lists.get(i).get(cursors[i]));
+                }
+            }
+            if (exhausted) {
+                return;
+            }
+            int matched = 0;
+            for (int i = 0; i < cursors.length; i++) {
+                if (cursors[i] < lists.get(i).size() && lists.get(i).get(cursors[i]) == filmId) {
+                    matched++;
+                    cursors[i]++;
+                }
+            }
+            if (longest.contains(filmId)) {
+                matched++;
+            }
+            offer(best, matched, filmId);
+        }
+    }
+
+    private void offer(LongTopK best, int matched, int filmId) {
+        // фильм с меньшим числом совпавших слов уже не войдёт в результат — лайки не читаем
+        if (matched < levelOf(best.threshold())) {
+            return;
+        }
+        int likes = Math.min(leaderboard.likes(filmId), MAX_RANKED_LIKES);
+        best.offer(((long) matched << 55) | ((long) likes << 31) | (Integer.MAX_VALUE - filmId));
+    }
+
+    private static int levelOf(long key) {
+        return key == Long.MIN_VALUE ? 0 : (int) (key >>> 55);
+    }
+
+    private static boolean containsAny(List<SortedIntSet> lists, int filmId) {
+        for (SortedIntSet list : lists) {
+            if (list.contains(filmId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
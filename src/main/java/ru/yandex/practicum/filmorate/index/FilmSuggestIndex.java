@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+import java.util.List;
+
+// Подсказки по началу названия фильма, лучшие — по числу лайков
+@Slf4j
+@Component
+public class FilmSuggestIndex {
+
+    private final FilmRepository filmRepository;
+    private final PrefixSuggester suggester;
+
+    public FilmSuggestIndex(FilmRepository filmRepository, PopularityLeaderboard leaderboard,
+                            @Value("${filmorate.suggest.top-k:10}") int topK) {
+        this.filmRepository = filmRepository;
+        this.suggester = new PrefixSuggester(topK, leaderboard::likes);
+        leaderboard.addListener(suggester::refreshScore);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        suggester.load(loader -> filmRepository.exportSearchTexts(film -> loader.accept(film.getName(), film.getId())));
+        log.info("Подсказки по названиям фильмов построены: {} фильмов", suggester.size());
+    }
+
+    public void index(Film film) {
+        suggester.put(film.getId(), film.getName());
+    }
+
+    public int maxCount() {
+        return suggester.topK();
+    }
+
+    public List<Integer> suggest(String prefix, int count) {
+        return suggester.suggest(prefix, count);
+    }
+}
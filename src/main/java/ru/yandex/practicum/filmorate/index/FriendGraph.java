@@ -0,0 +1,279 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.repository.UserRepository;
+import ru.yandex.practicum.filmorate.util.IntArrays;
+import ru.yandex.practicum.filmorate.util.LongTopK;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+@Slf4j
+@Component
+public class FriendGraph {
+
+    private static final int[] NO_FRIENDS = new int[0];
+    private static final int LOCK_STRIPES = 64;
+
+    private final UserRepository userRepository;
+    // Списки друзей неизменяемы и заменяются целиком, поэтому чтение идёт без блокировок
+    private final ConcurrentHashMap<Integer, int[]> friendsByUser = new ConcurrentHashMap<>();
+    // Обратные связи: кто добавил пользователя в друзья; нужны для сброса рекомендаций
+    private final ConcurrentHashMap<Integer, int[]> followersByUser = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Recommendations> recommendationsByUser = new ConcurrentHashMap<>();
+    // Логические часы сброса рекомендаций: расчёт, начатый до сброса рекомендаций своего пользователя
+    // (или до перестроения графа), не попадает в кэш; изменения у других пользователей ему не мешают
+    private final AtomicLong clock = new AtomicLong();
+    private final ConcurrentHashMap<Integer, Long> invalidatedAt = new ConcurrentHashMap<>();
+    private volatile long rebuiltAt;
+    private final Set<Integer> users = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+    // Подписчики на изменение числа подписчиков пользователя; вызываются после записи и сами читают текущее значение
+    private final List<IntConsumer> listeners = new CopyOnWriteArrayList<>();
+
+    public FriendGraph(UserRepository userRepository) {
+        this.userRepository = userRepository;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, int[]> snapshot = userRepository.findAllFriendIds();
+        int[] userIds = userRepository.findAllIds();
+        Map<Integer, SortedIntSet> followers = new HashMap<>();
+        snapshot.forEach((userId, friends) -> {
+            for (int friendId : friends) {
+                followers.computeIfAbsent(friendId, id -> new SortedIntSet()).add(userId);
+            }
+        });
+        rebuiltAt = clock.incrementAndGet();
+        invalidatedAt.clear();
+        friendsByUser.clear();
+        friendsByUser.putAll(snapshot);
+        followersByUser.clear();
+        followers.forEach((userId, ids) -> followersByUser.put(userId, ids.toArray()));
+        recommendationsByUser.clear();
+        users.clear();
+        Arrays.stream(userIds).forEach(users::add);
+        log.info("Граф дружбы построен: {} пользователей, {} связей", userIds.length,
+                snapshot.values().stream().mapToInt(friends -> friends.length).sum());
+    }
+
+    public void addListener(IntConsumer listener) {
+        listeners.add(listener);
+    }
+
+    public void registerUser(int userId) {
+        users.add(userId);
+    }
+
+    public boolean containsUser(int userId) {
+        return users.contains(userId);
+    }
+
+    public int[] friends(int userId) {
+        return friendsByUser.getOrDefault(userId, NO_FRIENDS);
+    }
+
+    public int followersCount(int userId) {
+        return followersByUser.getOrDefault(userId, NO_FRIENDS).length;
+    }
+
+    public int[] commonFriends(int userId, int otherId) {
+        return IntArrays.intersect(friends(userId), friends(otherId));
+    }
+
+    // Друзья друзей: пользователи на расстоянии ровно 2, без самого пользователя и его друзей
+    public int[] friendsOfFriends(int userId) {
+        int[] direct = friends(userId);
+        BitSet candidates = new BitSet();
+        for (int friendId : direct) {
+            for (int candidate : friends(friendId)) {
+                candidates.set(candidate);
+            }
+        }
+        candidates.clear(userId);
+        for (int friendId : direct) {
+            candidates.clear(friendId);
+        }
+        return candidates.stream().toArray();
+    }
+
+    // Кандидаты в друзья по числу общих друзей (по убыванию, при равенстве — по id).
+    // Результат кэшируется и сбрасывается при изменении друзей пользователя или его друзей
+    public Recommendations recommendations(int userId, int limit) {
+        Recommendations cached = recommendationsByUser.get(userId);
+        if (cached != null && (cached.limit() >= limit || cached.userIds().length < cached.limit())) {
+            return cached.truncate(limit);
+        }
+        long startedAt = clock.get();
+        Recommendations computed = computeRecommendations(userId, limit);
+        if (!invalidatedSince(userId, startedAt)) {
+            recommendationsByUser.merge(userId, computed, (old, current) -> old.limit() >= current.limit() ? old : current);
+            // друзья могли измениться между проверкой и записью
+            if (invalidatedSince(userId, startedAt)) {
+                recommendationsByUser.remove(userId, computed);
+            }
+        }
+        return computed;
+    }
+
+    private boolean invalidatedSince(int userId, long startedAt) {
+        return rebuiltAt > startedAt || invalidatedAt.getOrDefault(userId, 0L) > startedAt;
+    }
+
+    // Все друзья друзей складываются в один массив и сортируются: число повторов id — число общих друзей.
+    // Память и время зависят только от размера окрестности, а не от наибольшего id в системе
+    private Recommendations computeRecommendations(int userId, int limit) {
+        int[] direct = friends(userId);
+        int total = 0;
+        for (int friendId : direct) {
+            total += friends(friendId).length;
+        }
+        int[] candidates = new int[total];
+        int size = 0;
+        for (int friendId : direct) {
+            // список друга мог вырасти после подсчёта размера — лишнее не помещается и отбрасывается
+            int[] friendsOfFriend = friends(friendId);
+            int length = Math.min(friendsOfFriend.length, total - size);
+            System.arraycopy(friendsOfFriend, 0, candidates, size, length);
+            size += length;
+        }
+        Arrays.sort(candidates, 0, size);
+        // Ключ упаковывает число общих друзей и инвертированный id
+        LongTopK best = new LongTopK(limit);
+        for (int i = 0; i < size; ) {
+            int candidate = candidates[i];
+            int end = i;
+            while (end < size && candidates[end] == candidate) {
+                end++;
+            }
+            if (candidate != userId && Arrays.binarySearch(direct, candidate) < 0) {
+                best.offer(((long) (end - i) << 32) | (Integer.MAX_VALUE - candidate));
+            }
+            i = end;
+        }
+        long[] ranked = best.toSortedArray();
+        int[] userIds = new int[ranked.length];
+        int[] counts = new int[ranked.length];
+        for (int k = 0; k < ranked.length; k++) {
+            long key = ranked[k];
+            userIds[k] = Integer.MAX_VALUE - (int) key;
+            counts[k] = (int) (key >>> 32);
+        }
+        return new Recommendations(limit, userIds, counts);
+    }
+
+    // Поиск в ширину по направленным связям, не глубже maxDepth
+    public OptionalInt degreesOfSeparation(int fromId, int toId, int maxDepth) {
+        if (fromId == toId) {
+            return OptionalInt.of(0);
+        }
+        BitSet visited = new BitSet();
+        visited.set(fromId);
+        int[] frontier = {fromId};
+        for (int depth = 1; depth <= maxDepth && frontier.length > 0; depth++) {
+            int[] next = new int[16];
+            int size = 0;
+            for (int userId : frontier) {
+                for (int friendId : friends(userId)) {
+                    if (friendId == toId) {
+                        return OptionalInt.of(depth);
+                    }
+                    if (!visited.get(friendId)) {
+                        visited.set(friendId);
+                        if (size == next.length) {
+                            next = Arrays.copyOf(next, size * 2);
+                        }
+                        next[size++] = friendId;
+                    }
+                }
+            }
+            frontier = Arrays.copyOf(next, size);
+        }
+        return OptionalInt.empty();
+    }
+
+    // Запись в БД и обновление графа идут под одной блокировкой полосы,
+    // чтобы изменения одного пользователя применялись к графу в порядке их фиксации
+    public void addFriend(int userId, int friendId, Runnable persist) {
+        ReentrantLock lock = stripe(userId);
+        lock.lock();
+        try {
+            persist.run();
+            friendsByUser.compute(userId, (id, friends) -> with(friends == null ? NO_FRIENDS : friends, friendId));
+            followersByUser.compute(friendId, (id, followers) -> with(followers == null ? NO_FRIENDS : followers, userId));
+            listeners.forEach(listener -> listener.accept(friendId));
+            invalidateRecommendations(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean removeFriend(int userId, int friendId, BooleanSupplier persist) {
+        ReentrantLock lock = stripe(userId);
+        lock.lock();
+        try {
+            if (!persist.getAsBoolean()) {
+                return false;
+            }
+            friendsByUser.computeIfPresent(userId, (id, friends) -> without(friends, friendId));
+            followersByUser.computeIfPresent(friendId, (id, followers) -> without(followers, userId));
+            listeners.forEach(listener -> listener.accept(friendId));
+            invalidateRecommendations(userId);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Друзья пользователя входят в рекомендации для него самого и для всех, кто добавил его в друзья
+    private void invalidateRecommendations(int userId) {
+        long stamp = clock.incrementAndGet();
+        invalidatedAt.put(userId, stamp);
+        recommendationsByUser.remove(userId);
+        for (int followerId : followersByUser.getOrDefault(userId, NO_FRIENDS)) {
+            invalidatedAt.put(followerId, stamp);
+            recommendationsByUser.remove(followerId);
+        }
+    }
+
+    private ReentrantLock stripe(int userId) {
+        return stripes[Math.floorMod(userId, LOCK_STRIPES)];
+    }
+
+    private static int[] with(int[] friends, int friendId) {
+        return IntArrays.insert(friends, friendId);
+    }
+
+    private static int[] without(int[] friends, int friendId) {
+        int[] result = IntArrays.remove(friends, friendId);
+        return result.length == 0 ? null : result;
+    }
+
+    public record Recommendations(int limit, int[] userIds, int[] mutualCounts) {
+
+        Recommendations truncate(int max) {
+            if (userIds.length <= max) {
+                return this;
+            }
+            return new Recommendations(max, Arrays.copyOf(userIds, max), Arrays.copyOf(mutualCounts, max));
+        }
+    }
+}
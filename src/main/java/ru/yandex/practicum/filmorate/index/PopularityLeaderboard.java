@@ -0,0 +1,171 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+@Slf4j
+@Component
+public class PopularityLeaderboard {
+
+    private final FilmRepository filmRepository;
+    private final RankedCounter ranking = new RankedCounter(true);
+    // Полки: отдельные рейтинги по жанру, по году выпуска и по паре (жанр, год)
+    private final ConcurrentHashMap<Integer, RankedCounter> byGenre = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, RankedCounter> byYear = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, RankedCounter> byGenreYear = new ConcurrentHashMap<>();
+    // Изменения лайков и полок одного фильма идут внутри compute по его id, поэтому не перемешиваются
+    private final ConcurrentHashMap<Integer, Shelves> shelvesByFilm = new ConcurrentHashMap<>();
+    // Подписчики на изменение лайков фильма; вызываются после записи и сами читают текущее значение
+    private final List<IntConsumer> listeners = new CopyOnWriteArrayList<>();
+
+    public PopularityLeaderboard(FilmRepository filmRepository) {
+        this.filmRepository = filmRepository;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, Integer> snapshot = filmRepository.findLikesCounts();
+        Map<Integer, int[]> genres = filmRepository.findGenreIdsByFilm();
+        Map<Integer, Integer> years = filmRepository.findReleaseYears();
+        ranking.reset(snapshot);
+        byGenre.clear();
+        byYear.clear();
+        byGenreYear.clear();
+        shelvesByFilm.clear();
+        Map<Integer, Map<Integer, Integer>> genreSnapshots = new HashMap<>();
+        Map<Integer, Map<Integer, Integer>> yearSnapshots = new HashMap<>();
+        Map<Long, Map<Integer, Integer>> genreYearSnapshots = new HashMap<>();
+        snapshot.forEach((filmId, likes) -> {
+            Shelves shelves = new Shelves(genres.getOrDefault(filmId, new int[0]), years.get(filmId));
+            shelvesByFilm.put(filmId, shelves);
+            for (int genreId : shelves.genreIds()) {
+                genreSnapshots.computeIfAbsent(genreId, id -> new HashMap<>()).put(filmId, likes);
+            }
+            if (shelves.year() != null) {
+                yearSnapshots.computeIfAbsent(shelves.year(), id -> new HashMap<>()).put(filmId, likes);
+                for (int genreId : shelves.genreIds()) {
+                    genreYearSnapshots.computeIfAbsent(pairKey(genreId, shelves.year()), id -> new HashMap<>())
+                            .put(filmId, likes);
+                }
+            }
+        });
+        genreSnapshots.forEach((genreId, counts) -> shelf(byGenre, genreId).reset(counts));
+        yearSnapshots.forEach((year, counts) -> shelf(byYear, year).reset(counts));
+        genreYearSnapshots.forEach((key, counts) -> shelf(byGenreYear, key).reset(counts));
+        log.info("Рейтинг популярности построен: {} фильмов, полок: {} жанровых, {} годовых, {} по жанру и году",
+                snapshot.size(), byGenre.size(), byYear.size(), byGenreYear.size());
+    }
+
+    public void addListener(IntConsumer listener) {
+        listeners.add(listener);
+    }
+
+    public void register(int filmId) {
+        shelvesByFilm.computeIfAbsent(filmId, id -> {
+            ranking.register(id);
+            return Shelves.NONE;
+        });
+    }
+
+    // Добавляет фильм или переносит его между полками после смены жанров или даты выпуска
+    public void index(Film film) {
+        Shelves updated = new Shelves(
+                film.getGenres() == null ? new int[0] : film.getGenres().stream().mapToInt(Genre::getId).toArray(),
+                film.getReleaseDate() == null ? null : film.getReleaseDate().getYear());
+        shelvesByFilm.compute(film.getId(), (id, current) -> {
+            ranking.register(id);
+            int likes = ranking.count(id);
+            if (current != null) {
+                forEachShelf(current, shelf -> shelf.remove(id));
+            }
+            forEachShelf(updated, shelf -> {
+                shelf.register(id);
+                shelf.adjust(id, likes);
+            });
+            return updated;
+        });
+    }
+
+    public void increment(int filmId) {
+        adjust(filmId, 1);
+    }
+
+    public void decrement(int filmId) {
+        adjust(filmId, -1);
+    }
+
+    public int likes(int filmId) {
+        return ranking.count(filmId);
+    }
+
+    public List<Integer> top(int count) {
+        return ranking.top(count);
+    }
+
+    public List<Integer> topMatching(int count, IntPredicate filter, int maxScanned) {
+        return ranking.top(count, filter, maxScanned);
+    }
+
+    // null в фильтре означает «без ограничения»
+    public List<Integer> top(int count, Integer genreId, Integer year) {
+        if (genreId == null && year == null) {
+            return ranking.top(count);
+        }
+        RankedCounter shelf;
+        if (year == null) {
+            shelf = byGenre.get(genreId);
+        } else if (genreId == null) {
+            shelf = byYear.get(year);
+        } else {
+            shelf = byGenreYear.get(pairKey(genreId, year));
+        }
+        return shelf == null ? List.of() : shelf.top(count);
+    }
+
+    public void adjust(int filmId, int delta) {
+        shelvesByFilm.compute(filmId, (id, current) -> {
+            Shelves shelves = current == null ? Shelves.NONE : current;
+            ranking.adjust(id, delta);
+            forEachShelf(shelves, shelf -> shelf.adjust(id, delta));
+            return shelves;
+        });
+        listeners.forEach(listener -> listener.accept(filmId));
+    }
+
+    private void forEachShelf(Shelves shelves, Consumer<RankedCounter> action) {
+        for (int genreId : shelves.genreIds()) {
+            action.accept(shelf(byGenre, genreId));
+        }
+        if (shelves.year() != null) {
+            action.accept(shelf(byYear, shelves.year()));
+            for (int genreId : shelves.genreIds()) {
+                action.accept(shelf(byGenreYear, pairKey(genreId, shelves.year())));
+            }
+        }
+    }
+
+    private static <K> RankedCounter shelf(ConcurrentHashMap<K, RankedCounter> shelves, K key) {
+        return shelves.computeIfAbsent(key, id -> new RankedCounter(true));
+    }
+
+    private static long pairKey(int genreId, int year) {
+        return ((long) genreId << 32) | (year & 0xFFFFFFFFL);
+    }
+
+    private record Shelves(int[] genreIds, Integer year) {
+        private static final Shelves NONE = new Shelves(new int[0], null);
+    }
+}
@@ -0,0 +1,348 @@
+package ru.yandex.practicum.filmorate.index;
+
+import ru.yandex.practicum.filmorate.util.LongTopK;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ObjIntConsumer;
+
+// Сжатое префиксное дерево: ребро хранит строку, а не один символ, поэтому узлов не больше двух на ключ.
+// Каждый узел помнит k лучших id своего поддерева, так что подсказка — это спуск по префиксу без обхода поддерева.
+// Список узла собирается из его собственных id и списков детей и пересчитывается снизу вверх по пути изменённого ключа
+public final class PrefixSuggester {
+
+    private static final int[] NO_IDS = new int[0];
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final int topK;
+    // Очки читаются из источника под блокировкой записи, поэтому параллельное изменение не теряется
+    private final IntUnaryOperator scoreSource;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node("");
+    private final Map<Integer, String> keys = new HashMap<>();
+    private final Map<Integer, Integer> scores = new HashMap<>();
+
+    public PrefixSuggester(int topK, IntUnaryOperator scoreSource) {
+        this.topK = topK;
+        this.scoreSource = scoreSource;
+    }
+
+    public int topK() {
+        return topK;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return keys.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static String fold(String text) {
+        return text == null ? "" : text.stripLeading().toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    // Массовая загрузка: списки лучших пересчитываются один раз обходом снизу вверх, а не после каждого ключа
+    public void load(Consumer<ObjIntConsumer<String>> source) {
+        lock.writeLock().lock();
+        try {
+            root.keys = NO_KEYS;
+            root.children = NO_CHILDREN;
+            root.ids = NO_IDS;
+            keys.clear();
+            scores.clear();
+            source.accept((text, id) -> {
+                String key = fold(text);
+                String previous = keys.put(id, key);
+                if (previous != null) {
+                    List<Node> path = path(previous);
+                    Node node = path.get(path.size() - 1);
+                    node.ids = without(node.ids, id);
+                }
+                scores.put(id, scoreSource.applyAsInt(id));
+                List<Node> path = insertPath(key);
+                Node node = path.get(path.size() - 1);
+                node.ids = append(node.ids, id);
+            });
+            recomputeSubtree(root);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Добавляет id или переносит его на новый текст
+    public void put(int id, String text) {
+        String key = fold(text);
+        lock.writeLock().lock();
+        try {
+            String previous = keys.get(id);
+            scores.put(id, scoreSource.applyAsInt(id));
+            if (key.equals(previous)) {
+                refresh(path(key), id, true);
+                return;
+            }
+            if (previous != null) {
+                detach(id, previous);
+            }
+            keys.put(id, key);
+            List<Node> path = insertPath(key);
+            Node node = path.get(path.size() - 1);
+            node.ids = append(node.ids, id);
+            refresh(path, id, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void refreshScore(int id) {
+        lock.writeLock().lock();
+        try {
+            String key = keys.get(id);
+            if (key == null) {
+                return;
+            }
+            int score = scoreSource.applyAsInt(id);
+            Integer previous = scores.put(id, score);
+            refresh(path(key), id, previous == null || score > previous);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Integer> suggest(String prefix, int count) {
+        String key = fold(prefix);
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int i = 0;
+            while (i < key.length()) {
+                int index = Arrays.binarySearch(node.keys, key.charAt(i));
+                if (index < 0) {
+                    return List.of();
+                }
+                Node child = node.children[index];
+                int common = commonPrefix(child.label, key, i);
+                if (i + common == key.length()) {
+                    // префикс закончился внутри или в конце ребра: подходит всё поддерево ребёнка
+                    node = child;
+                    break;
+                }
+                if (common < child.label.length()) {
+                    return List.of();
+                }
+                node = child;
+                i += common;
+            }
+            int[] top = node.top;
+            List<Integer> result = new ArrayList<>(Math.min(count, top.length));
+            for (int j = 0; j < top.length && j < count; j++) {
+                result.add(top[j]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void detach(int id, String key) {
+        List<Node> path = path(key);
+        Node node = path.get(path.size() - 1);
+        node.ids = without(node.ids, id);
+        keys.remove(id);
+        // пустые листья удаляются, чтобы не копить узлы от старых названий
+        for (int i = path.size() - 1; i > 0; i--) {
+            Node current = path.get(i);
+            if (current.ids.length > 0 || current.children.length > 0) {
+                break;
+            }
+            Node parent = path.get(i - 1);
+            int index = Arrays.binarySearch(parent.keys, current.label.charAt(0));
+            parent.keys = removeAt(parent.keys, index);
+            parent.children = removeAt(parent.children, index);
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            recompute(path.get(i));
+        }
+    }
+
+    // Путь от корня до узла, в котором заканчивается ключ; ключ должен уже быть в дереве
+    private List<Node> path(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            node = node.children[Arrays.binarySearch(node.keys, key.charAt(i))];
+            path.add(node);
+            i += node.label.length();
+        }
+        return path;
+    }
+
+    private List<Node> insertPath(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            char c = key.charAt(i);
+            int index = Arrays.binarySearch(node.keys, c);
+            if (index < 0) {
+                Node leaf = new Node(key.substring(i));
+                int position = -index - 1;
+                node.keys = insertAt(node.keys, position, c);
+                node.children = insertAt(node.children, position, leaf);
+                path.add(leaf);
+                return path;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // ключ расходится с ребром посередине: ребро делится промежуточным узлом
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.keys = new char[]{child.label.charAt(0)};
+                middle.children = new Node[]{child};
+                middle.top = child.top;
+                node.children[index] = middle;
+                child = middle;
+            }
+            path.add(child);
+            node = child;
+            i += common;
+        }
+        return path;
+    }
+
+    // Снизу вверх; подъём останавливается, когда список узла заведомо не меняется
+    private void refresh(List<Node> path, int id, boolean improved) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            boolean listed = contains(node.top, id);
+            if (!listed && !improved) {
+                return;
+            }
+            if (!listed && node.top.length == topK && rank(id) <= rank(node.top[topK - 1])) {
+                return;
+            }
+            recompute(node);
+        }
+    }
+
+    private void recomputeSubtree(Node node) {
+        for (Node child : node.children) {
+            recomputeSubtree(child);
+        }
+        recompute(node);
+    }
+
+    private void recompute(Node node) {
+        LongTopK best = new LongTopK(topK);
+        for (int id : node.ids) {
+            best.offer(rank(id));
+        }
+        for (Node child : node.children) {
+            for (int id : child.top) {
+                best.offer(rank(id));
+            }
+        }
+        long[] ranked = best.toSortedArray();
+        int[] top = new int[ranked.length];
+        for (int i = 0; i < ranked.length; i++) {
+            top[i] = Integer.MAX_VALUE - (int) (ranked[i] & Integer.MAX_VALUE);
+        }
+        node.top = top;
+    }
+
+    // Больше — лучше: очки, затем меньший id
+    private long rank(int id) {
+        return ((long) scores.getOrDefault(id, 0) << 31) | (Integer.MAX_VALUE - id);
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean contains(int[] ids, int id) {
+        for (int value : ids) {
+            if (value == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] append(int[] ids, int id) {
+        int[] result = Arrays.copyOf(ids, ids.length + 1);
+        result[ids.length] = id;
+        return result;
+    }
+
+    private static int[] without(int[] ids, int id) {
+        int[] result = new int[ids.length];
+        int size = 0;
+        for (int value : ids) {
+            if (value != id) {
+                result[size++] = value;
+            }
+        }
+        return size == 0 ? NO_IDS : Arrays.copyOf(result, size);
+    }
+
+    private static char[] insertAt(char[] array, int index, char value) {
+        char[] result = new char[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+
+    private static Node[] insertAt(Node[] array, int index, Node value) {
+        Node[] result = new Node[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+
+    private static char[] removeAt(char[] array, int index) {
+        char[] result = new char[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    private static Node[] removeAt(Node[] array, int index) {
+        Node[] result = new Node[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    private static final class Node {
+        private String label;
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private int[] ids = NO_IDS;
+        private int[] top = NO_IDS;
+
+        private Node(String label) {
+            this.label = label;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.IntPredicate;
+
+// Счётчики по id с ранжированием по убыванию значения, при равенстве — по возрастанию id
+public final class RankedCounter {
+
+    private static final Comparator<Entry> RANK_ORDER = Comparator
+            .comparingInt(Entry::count).reversed()
+            .thenComparingInt(Entry::id);
+
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(RANK_ORDER);
+    private final ConcurrentHashMap<Integer, Integer> counts = new ConcurrentHashMap<>();
+    // Нужно ли держать в рейтинге id с нулевым счётчиком
+    private final boolean keepZeros;
+
+    public RankedCounter(boolean keepZeros) {
+        this.keepZeros = keepZeros;
+    }
+
+    public void reset(Map<Integer, Integer> snapshot) {
+        ranking.clear();
+        counts.clear();
+        snapshot.forEach((id, count) -> {
+            if (count > 0 || keepZeros) {
+                counts.put(id, count);
+                ranking.add(new Entry(count, id));
+            }
+        });
+    }
+
+    public void register(int id) {
+        counts.computeIfAbsent(id, key -> {
+            ranking.add(new Entry(0, key));
+            return 0;
+        });
+    }
+
+    public int count(int id) {
+        return counts.getOrDefault(id, 0);
+    }
+
+    public int size() {
+        return counts.size();
+    }
+
+    public void adjust(int id, int delta) {
+        counts.compute(id, (key, current) -> {
+            int before = current == null ? 0 : current;
+            int after = Math.max(0, before + delta);
+            if (after > 0 || keepZeros) {
+                ranking.add(new Entry(after, key));
+            }
+            if (current != null && after != before) {
+                ranking.remove(new Entry(before, key));
+            }
+            return after == 0 && !keepZeros ? null : after;
+        });
+    }
+
+    public void remove(int id) {
+        counts.computeIfPresent(id, (key, current) -> {
+            ranking.remove(new Entry(current, key));
+            return null;
+        });
+    }
+
+    public List<Integer> top(int count) {
+        return top(count, id -> true);
+    }
+
+    public List<Integer> top(int count, IntPredicate filter) {
+        return top(count, filter, Integer.MAX_VALUE);
+    }
+
+    // Просматривает не больше maxScanned позиций рейтинга; результат может оказаться короче count
+    public List<Integer> top(int count, IntPredicate filter, int maxScanned) {
+        List<Integer> result = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        int scanned = 0;
+        for (Entry entry : ranking) {
+            if (result.size() >= count || scanned++ >= maxScanned) {
+                break;
+            }
+            // во время обновления id может кратковременно присутствовать дважды
+            if (filter.test(entry.id()) && seen.add(entry.id())) {
+                result.add(entry.id());
+            }
+        }
+        return result;
+    }
+
+    private record Entry(int count, int id) {
+    }
+}
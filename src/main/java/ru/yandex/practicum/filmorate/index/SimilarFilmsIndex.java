@@ -0,0 +1,399 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.util.IntArrays;
+import ru.yandex.practicum.filmorate.util.LongTopK;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// «Кто лайкнул этот фильм, лайкнул и эти»: для каждого фильма хранятся top-N соседей по косинусной мере
+// над множествами лайкнувших пользователей. Полный пересчёт идёт параллельно по частям списка фильмов.
+// Лайк помечает фильм; помеченный фильм пересчитывается целиком, а его сходство с остальными
+// (мера симметрична) вписывается в их списки, так что между полными пересчётами не нужен обход всех фильмов.
+// Оба пересчёта идут в собственном потоке индекса, а не в общем планировщике Spring, и не пересекаются друг с другом
+@Slf4j
+@Component
+public class SimilarFilmsIndex {
+
+    private static final int[] NO_IDS = new int[0];
+    private static final int MIN_PARTITION = 256;
+
+    private final FilmRepository filmRepository;
+    private final int topN;
+    // Пользователи с большим числом лайков почти не говорят о сходстве фильмов, а стоят квадратично;
+    // они не входят ни в совпадения, ни в число лайков фильма, так что мера остаётся косинусом
+    private final int maxUserLikes;
+    private final long refreshIntervalMs;
+    private final long rebuildIntervalMs;
+    private final ForkJoinPool pool;
+    private final ScheduledExecutorService scheduler;
+    // Массивы отсортированы, неизменяемы и заменяются целиком, поэтому пересчёт читает их без блокировок
+    private final ConcurrentHashMap<Integer, int[]> usersByFilm = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, int[]> filmsByUser = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Neighbours> neighbours = new ConcurrentHashMap<>();
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+    // Лайки, пришедшие во время чтения снимка из БД, повторяются поверх него; запись лайка идёт под read-блокировкой,
+    // подмена снимка — под write-блокировкой, поэтому лайк не попадает между ними
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private final Queue<LikeChange> replay = new ConcurrentLinkedQueue<>();
+    private volatile boolean loading;
+    // Счётчики общих пользователей у каждого потока свои и переиспользуются между пересчётами;
+    // после каждого фильма они обнуляются только в задетых ячейках
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    // Доступ только из пересчётов, которые не идут параллельно
+    private int[] likeCounts = NO_IDS;
+
+    public SimilarFilmsIndex(FilmRepository filmRepository,
+                             @Value("${filmorate.similar.top-n:20}") int topN,
+                             @Value("${filmorate.similar.max-user-likes:1000}") int maxUserLikes,
+                             @Value("${filmorate.similar.parallelism:0}") int parallelism,
+                             @Value("${filmorate.similar.refresh-interval-ms:5000}") long refreshIntervalMs,
+                             @Value("${filmorate.similar.rebuild-interval-ms:3600000}") long rebuildIntervalMs) {
+        this.filmRepository = filmRepository;
+        this.topN = topN;
+        this.maxUserLikes = maxUserLikes > 0 ? maxUserLikes : Integer.MAX_VALUE;
+        this.refreshIntervalMs = refreshIntervalMs;
+        this.rebuildIntervalMs = rebuildIntervalMs;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "similar-films");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        rebuild();
+        scheduler.scheduleWithFixedDelay(() -> run("обновление", this::refreshDirty),
+                refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(() -> run("полный пересчёт", this::rebuild),
+                rebuildIntervalMs, rebuildIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    // Полный пересчёт по снимку лайков из БД: исправляет и то, что могло разойтись с ней в памяти
+    public void rebuild() {
+        loading = true;
+        Map<Integer, int[]> snapshot;
+        try {
+            snapshot = filmRepository.findLikedFilmIdsByUser();
+        } catch (RuntimeException e) {
+            loading = false;
+            replay.clear();
+            throw e;
+        }
+        Map<Integer, SortedIntSet> users = new HashMap<>();
+        snapshot.forEach((userId, films) -> {
+            for (int filmId : films) {
+                users.computeIfAbsent(filmId, id -> new SortedIntSet()).add(userId);
+            }
+        });
+        snapshotLock.writeLock().lock();
+        try {
+            filmsByUser.clear();
+            filmsByUser.putAll(snapshot);
+            usersByFilm.clear();
+            users.forEach((filmId, ids) -> usersByFilm.put(filmId, ids.toArray()));
+            for (LikeChange change = replay.poll(); change != null; change = replay.poll()) {
+                apply(change.filmId(), change.userId(), change.liked());
+            }
+            loading = false;
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+        recomputeAll();
+    }
+
+    public int maxCount() {
+        return topN;
+    }
+
+    public List<Integer> similar(int filmId, int count) {
+        Neighbours found = neighbours.get(filmId);
+        if (found == null) {
+            return List.of();
+        }
+        return Arrays.stream(found.filmIds(), 0, Math.min(count, found.filmIds().length)).boxed().toList();
+    }
+
+    public Neighbours neighbours(int filmId) {
+        return neighbours.get(filmId);
+    }
+
+    public void recordLike(int filmId, int userId, boolean liked) {
+        snapshotLock.readLock().lock();
+        try {
+            apply(filmId, userId, liked);
+            if (loading) {
+                replay.add(new LikeChange(filmId, userId, liked));
+            }
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    private void apply(int filmId, int userId, boolean liked) {
+        usersByFilm.compute(filmId, (id, users) -> update(users, userId, liked));
+        int[] films = filmsByUser.compute(userId, (id, current) -> update(current, filmId, liked));
+        dirty.add(filmId);
+        // После отмены лайка фильм может совсем пропасть из пересечений с фильмами пользователя,
+        // и вписать его новое сходство в их списки будет не из чего — они пересчитываются целиком.
+        // Так же и когда пользователь перешагнул порог maxUserLikes: у всех его фильмов меняется число лайков
+        if (films != null && (liked ? films.length == maxUserLikes + 1 : films.length <= maxUserLikes)) {
+            for (int other : films) {
+                dirty.add(other);
+            }
+        }
+    }
+
+    // Сосед, выбывший из списка после понижения сходства, заменяется точным кандидатом только при полном
+    // пересчёте, поэтому он тоже идёт по расписанию, но реже
+    public void refreshDirty() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        int[] filmIds = new int[dirty.size()];
+        int size = 0;
+        Iterator<Integer> iterator = dirty.iterator();
+        // id снимается с пометки до пересчёта: лайк во время пересчёта пометит фильм снова
+        while (iterator.hasNext() && size < filmIds.length) {
+            filmIds[size++] = iterator.next();
+            iterator.remove();
+        }
+        compute(Arrays.copyOf(filmIds, size), true);
+    }
+
+    private void recomputeAll() {
+        dirty.clear();
+        long startedAt = System.nanoTime();
+        int[] filmIds = usersByFilm.keySet().stream().mapToInt(Integer::intValue).toArray();
+        compute(filmIds, false);
+        neighbours.keySet().removeIf(filmId -> !usersByFilm.containsKey(filmId));
+        log.info("Похожие фильмы пересчитаны: {} фильмов за {} мс", filmIds.length,
+                (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    private void compute(int[] filmIds, boolean patchOthers) {
+        if (filmIds.length == 0) {
+            return;
+        }
+        int maxId = usersByFilm.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+        for (int filmId : filmIds) {
+            maxId = Math.max(maxId, filmId);
+        }
+        // Число учитываемых лайков каждого фильма — знаменатель косинуса; плотный массив вместо поиска в карте
+        if (likeCounts.length <= maxId) {
+            likeCounts = new int[maxId + 1 + (maxId >> 3)];
+        } else {
+            Arrays.fill(likeCounts, 0);
+        }
+        int[] likes = likeCounts;
+        filmsByUser.forEach((userId, films) -> {
+            if (films.length > maxUserLikes) {
+                return;
+            }
+            for (int filmId : films) {
+                if (filmId < likes.length) {
+                    likes[filmId]++;
+                }
+            }
+        });
+        int partition = Math.max(MIN_PARTITION, filmIds.length / (pool.getParallelism() * 4));
+        pool.invoke(new ComputeTask(filmIds, 0, filmIds.length, partition, likes, patchOthers));
+    }
+
+    // Скалярные произведения фильма со всеми остальными за один проход по его пользователям
+    private void computeFilm(int filmId, int[] likes, Scratch scratch, boolean patchOthers) {
+        int[] users = usersByFilm.getOrDefault(filmId, NO_IDS);
+        if (users.length == 0) {
+            neighbours.remove(filmId);
+            return;
+        }
+        scratch.ensureCapacity(likes.length);
+        int[] counts = scratch.counts;
+        int[] touched = scratch.touched;
+        int size = 0;
+        int ownLikes = 0;
+        for (int userId : users) {
+            int[] films = filmsByUser.getOrDefault(userId, NO_IDS);
+            if (films.length > maxUserLikes) {
+                continue;
+            }
+            ownLikes++;
+            for (int other : films) {
+                // фильм, появившийся после начала пересчёта, уже помечен и будет посчитан следующим проходом
+                if (other == filmId || other >= likes.length) {
+                    continue;
+                }
+                if (counts[other]++ == 0) {
+                    touched[size++] = other;
+                }
+            }
+        }
+        LongTopK best = new LongTopK(topN);
+        for (int i = 0; i < size; i++) {
+            int other = touched[i];
+            int otherLikes = likes[other];
+            if (otherLikes > 0) {
+                float score = (float) (counts[other] / Math.sqrt((double) ownLikes * otherLikes));
+                best.offer(key(score, other));
+                if (patchOthers) {
+                    patch(other, filmId, score);
+                }
+            }
+            counts[other] = 0;
+        }
+        long[] ranked = best.toSortedArray();
+        int[] ids = new int[ranked.length];
+        float[] scores = new float[ranked.length];
+        for (int i = 0; i < ranked.length; i++) {
+            ids[i] = Integer.MAX_VALUE - (int) ranked[i];
+            scores[i] = Float.intBitsToFloat((int) (ranked[i] >>> 32));
+        }
+        neighbours.put(filmId, new Neighbours(ids, scores));
+    }
+
+    private void patch(int filmId, int neighbourId, float score) {
+        Neighbours current = neighbours.get(filmId);
+        if (current != null && !current.accepts(neighbourId, score, topN)) {
+            return;
+        }
+        neighbours.compute(filmId, (id, list) -> (list == null ? Neighbours.EMPTY : list).with(neighbourId, score, topN));
+    }
+
+    // Больше — лучше: сходство (для положительного float порядок битов совпадает с порядком чисел), затем меньший id
+    private static long key(float score, int filmId) {
+        return ((long) Float.floatToIntBits(score) << 32) | (Integer.MAX_VALUE - filmId);
+    }
+
+    private static void run(String name, Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            log.error("Похожие фильмы: {} не выполнен, повтор при следующем запуске", name, e);
+        }
+    }
+
+    private static int[] update(int[] ids, int id, boolean add) {
+        int[] current = ids == null ? NO_IDS : ids;
+        int[] result = add ? IntArrays.insert(current, id) : IntArrays.remove(current, id);
+        return result.length == 0 ? null : result;
+    }
+
+    public record Neighbours(int[] filmIds, float[] scores) {
+        private static final Neighbours EMPTY = new Neighbours(NO_IDS, new float[0]);
+
+        private boolean accepts(int filmId, float score, int limit) {
+            if (filmIds.length < limit) {
+                return true;
+            }
+            for (int id : filmIds) {
+                if (id == filmId) {
+                    return true;
+                }
+            }
+            return key(score, filmId) > key(scores[scores.length - 1], filmIds[filmIds.length - 1]);
+        }
+
+        // Новый список с соседом на месте по сходству; лишние с конца отбрасываются
+        private Neighbours with(int filmId, float score, int limit) {
+            int[] ids = new int[filmIds.length + 1];
+            float[] values = new float[filmIds.length + 1];
+            int size = 0;
+            boolean placed = false;
+            for (int i = 0; i < filmIds.length; i++) {
+                if (filmIds[i] == filmId) {
+                    continue;
+                }
+                if (!placed && key(score, filmId) > key(scores[i], filmIds[i])) {
+                    ids[size] = filmId;
+                    values[size++] = score;
+                    placed = true;
+                }
+                ids[size] = filmIds[i];
+                values[size++] = scores[i];
+            }
+            if (!placed) {
+                ids[size] = filmId;
+                values[size++] = score;
+            }
+            size = Math.min(size, limit);
+            return new Neighbours(Arrays.copyOf(ids, size), Arrays.copyOf(values, size));
+        }
+    }
+
+    private record LikeChange(int filmId, int userId, boolean liked) {
+    }
+
+    private static final class Scratch {
+        private int[] counts = NO_IDS;
+        private int[] touched = NO_IDS;
+
+        // Массивы растут вместе с максимальным id; при росте старые уже обнулены и просто отбрасываются
+        private void ensureCapacity(int capacity) {
+            if (counts.length < capacity) {
+                counts = new int[capacity];
+                touched = new int[capacity];
+            }
+        }
+    }
+
+    // Части списка фильмов считаются независимо; счётчики и список задетых фильмов — свои у каждого потока
+    private final class ComputeTask extends RecursiveAction {
+        private final int[] filmIds;
+        private final int from;
+        private final int to;
+        private final int partition;
+        private final int[] likes;
+        private final boolean patchOthers;
+
+        private ComputeTask(int[] filmIds, int from, int to, int partition, int[] likes, boolean patchOthers) {
+            this.filmIds = filmIds;
+            this.from = from;
+            this.to = to;
+            this.partition = partition;
+            this.likes = likes;
+            this.patchOthers = patchOthers;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > partition) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ComputeTask(filmIds, from, middle, partition, likes, patchOthers),
+                        new ComputeTask(filmIds, middle, to, partition, likes, patchOthers));
+                return;
+            }
+            Scratch local = scratch.get();
+            for (int i = from; i < to; i++) {
+                computeFilm(filmIds[i], likes, local, patchOthers);
+            }
+        }
+    }
+}
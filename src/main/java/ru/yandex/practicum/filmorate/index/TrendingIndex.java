@@ -0,0 +1,198 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.HourlyLikes;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Лайки за последние часы: кольцо почасовых корзин (фильм -> число лайков) и рейтинг на каждое окно.
+// Суммы окон обновляются при каждом лайке и при смене часа, поэтому запрос не пересчитывает корзины
+@Slf4j
+@Component
+public class TrendingIndex {
+
+    private final FilmRepository filmRepository;
+    private final int[] windows;
+    private final RankedCounter[] rankings;
+    private final Bucket[] ring;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile long currentHour;
+
+    public TrendingIndex(FilmRepository filmRepository,
+                         @Value("${filmorate.trending.windows-hours:1,6,24,168}") int[] windows) {
+        this.filmRepository = filmRepository;
+        this.windows = Arrays.stream(windows).sorted().distinct().toArray();
+        if (this.windows.length == 0 || this.windows[0] < 1) {
+            throw new IllegalArgumentException("Окна трендов должны быть положительными: " + Arrays.toString(windows));
+        }
+        this.rankings = new RankedCounter[this.windows.length];
+        for (int i = 0; i < rankings.length; i++) {
+            rankings[i] = new RankedCounter(false);
+        }
+        this.ring = new Bucket[this.windows[this.windows.length - 1]];
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        rebuild(LocalDateTime.now());
+    }
+
+    void rebuild(LocalDateTime now) {
+        long nowHour = epochHour(now);
+        List<HourlyLikes> recent = filmRepository.findHourlyLikesSince(startOfHour(nowHour - ring.length + 1));
+        lock.lock();
+        try {
+            currentHour = nowHour;
+            Arrays.fill(ring, null);
+            List<Map<Integer, Integer>> sums = new ArrayList<>();
+            for (int ignored : windows) {
+                sums.add(new HashMap<>());
+            }
+            for (HourlyLikes likes : recent) {
+                long hour = epochHour(likes.getHour());
+                if (hour > nowHour || hour <= nowHour - ring.length) {
+                    continue;
+                }
+                bucket(hour).counts.merge(likes.getFilmId(), likes.getLikes(), Integer::sum);
+                for (int i = 0; i < windows.length; i++) {
+                    if (hour > nowHour - windows[i]) {
+                        sums.get(i).merge(likes.getFilmId(), likes.getLikes(), Integer::sum);
+                    }
+                }
+            }
+            for (int i = 0; i < windows.length; i++) {
+                rankings[i].reset(sums.get(i));
+            }
+        } finally {
+            lock.unlock();
+        }
+        log.info("Тренды построены: {} почасовых записей за {} ч", recent.size(), ring.length);
+    }
+
+    public int[] windows() {
+        return windows.clone();
+    }
+
+    public boolean supports(int windowHours) {
+        return Arrays.binarySearch(windows, windowHours) >= 0;
+    }
+
+    // likedAt — время лайка; при отмене лайка передаётся время исходного лайка
+    public void record(int filmId, int delta, LocalDateTime likedAt, LocalDateTime now) {
+        long hour = epochHour(likedAt);
+        lock.lock();
+        try {
+            advance(epochHour(now));
+            if (hour > currentHour || hour <= currentHour - ring.length) {
+                return;
+            }
+            Bucket bucket = bucket(hour);
+            int before = bucket.counts.getOrDefault(filmId, 0);
+            int after = Math.max(0, before + delta);
+            if (after == before) {
+                return;
+            }
+            if (after == 0) {
+                bucket.counts.remove(filmId);
+            } else {
+                bucket.counts.put(filmId, after);
+            }
+            for (int i = 0; i < windows.length; i++) {
+                if (hour > currentHour - windows[i]) {
+                    rankings[i].adjust(filmId, after - before);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<Integer> top(int windowHours, int count, LocalDateTime now) {
+        int index = Arrays.binarySearch(windows, windowHours);
+        if (index < 0) {
+            throw new IllegalArgumentException("Окно " + windowHours + " ч не поддерживается");
+        }
+        long nowHour = epochHour(now);
+        if (nowHour > currentHour) {
+            lock.lock();
+            try {
+                advance(nowHour);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return rankings[index].top(count);
+    }
+
+    public int likes(int windowHours, int filmId) {
+        return rankings[Arrays.binarySearch(windows, windowHours)].count(filmId);
+    }
+
+    // Сдвиг на новый час: корзины, вышедшие за границу окна, вычитаются из его рейтинга
+    private void advance(long nowHour) {
+        if (nowHour <= currentHour) {
+            return;
+        }
+        if (nowHour - currentHour >= ring.length) {
+            Arrays.fill(ring, null);
+            for (RankedCounter ranking : rankings) {
+                ranking.reset(Map.of());
+            }
+            currentHour = nowHour;
+            return;
+        }
+        while (currentHour < nowHour) {
+            currentHour++;
+            for (int i = 0; i < windows.length; i++) {
+                Bucket expired = ring[slot(currentHour - windows[i])];
+                if (expired != null && expired.hour == currentHour - windows[i]) {
+                    RankedCounter ranking = rankings[i];
+                    expired.counts.forEach((filmId, likes) -> ranking.adjust(filmId, -likes));
+                }
+            }
+            ring[slot(currentHour)] = null;
+        }
+    }
+
+    private Bucket bucket(long hour) {
+        int slot = slot(hour);
+        Bucket bucket = ring[slot];
+        if (bucket == null || bucket.hour != hour) {
+            bucket = new Bucket(hour);
+            ring[slot] = bucket;
+        }
+        return bucket;
+    }
+
+    private int slot(long hour) {
+        return (int) Math.floorMod(hour, (long) ring.length);
+    }
+
+    private static long epochHour(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 3600);
+    }
+
+    private static LocalDateTime startOfHour(long epochHour) {
+        return LocalDateTime.ofEpochSecond(epochHour * 3600, 0, ZoneOffset.UTC);
+    }
+
+    private static final class Bucket {
+        private final long hour;
+        private final Map<Integer, Integer> counts = new HashMap<>();
+
+        private Bucket(long hour) {
+            this.hour = hour;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.UserRepository;
+
+import java.util.List;
+
+// Подсказки по началу логина, лучшие — по числу пользователей, добавивших в друзья
+@Slf4j
+@Component
+public class UserSuggestIndex {
+
+    private final UserRepository userRepository;
+    private final PrefixSuggester suggester;
+
+    public UserSuggestIndex(UserRepository userRepository, FriendGraph friendGraph,
+                            @Value("${filmorate.suggest.top-k:10}") int topK) {
+        this.userRepository = userRepository;
+        this.suggester = new PrefixSuggester(topK, friendGraph::followersCount);
+        friendGraph.addListener(suggester::refreshScore);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        suggester.load(loader -> userRepository.exportAll(user -> loader.accept(user.getLogin(), user.getId())));
+        log.info("Подсказки по логинам построены: {} пользователей", suggester.size());
+    }
+
+    public void index(User user) {
+        suggester.put(user.getId(), user.getLogin());
+    }
+
+    public int maxCount() {
+        return suggester.topK();
+    }
+
+    public List<Integer> suggest(String prefix, int count) {
+        return suggester.suggest(prefix, count);
+    }
+}
@@ -4,6 +4,8 @@ import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.dto.*;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikePair;
+import ru.yandex.practicum.filmorate.model.LikeStatus;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
 import java.util.LinkedHashSet;
@@ -75,6 +77,26 @@ public class FilmDtoMapper {
         return dto;
     }
 
+    public LikeBatchResponse toLikeBatchResponse(List<LikePair> likes, List<LikeStatus> statuses) {
+        LikeBatchResponse response = new LikeBatchResponse();
+        for (int i = 0; i < statuses.size(); i++) {
+            LikePair like = likes.get(i);
+            switch (statuses.get(i)) {
+                case INVALID -> response.getFailures().add(like == null
+                        ? new LikeBatchResponse.Failure(i, null, null, "Пустой элемент пакета")
+                        : new LikeBatchResponse.Failure(i, like.getFilmId(), like.getUserId(),
+                                "Не указан id фильма или пользователя"));
+                case ADDED -> response.setAdded(response.getAdded() + 1);
+                case ALREADY_EXISTS -> response.setAlreadyExisting(response.getAlreadyExisting() + 1);
+                case FILM_NOT_FOUND -> response.getFailures().add(new LikeBatchResponse.Failure(i,
+                        like.getFilmId(), like.getUserId(), "Фильм с id = " + like.getFilmId() + " не найден"));
+                case USER_NOT_FOUND -> response.getFailures().add(new LikeBatchResponse.Failure(i,
+                        like.getFilmId(), like.getUserId(), "Пользователь с id = " + like.getUserId() + " не найден"));
+            }
+        }
+        return response;
+    }
+
     public List<FilmResponse> toResponseList(List<Film> films) {
         return films.stream().map(this::toResponse).toList();
     }
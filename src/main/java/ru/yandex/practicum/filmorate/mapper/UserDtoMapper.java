@@ -1,9 +1,11 @@
 package ru.yandex.practicum.filmorate.mapper;
 
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dto.FriendRecommendationResponse;
 import ru.yandex.practicum.filmorate.dto.UserCreateRequest;
 import ru.yandex.practicum.filmorate.dto.UserResponse;
 import ru.yandex.practicum.filmorate.dto.UserUpdateRequest;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
@@ -40,6 +42,15 @@ public class UserDtoMapper {
         return dto;
     }
 
+    public List<FriendRecommendationResponse> toRecommendationResponseList(List<FriendRecommendation> recommendations) {
+        return recommendations.stream().map(recommendation -> {
+            FriendRecommendationResponse dto = new FriendRecommendationResponse();
+            dto.setUser(toResponse(recommendation.getUser()));
+            dto.setMutualFriends(recommendation.getMutualFriends());
+            return dto;
+        }).toList();
+    }
+
     public List<UserResponse> toResponseList(List<User> users) {
         return users.stream().map(this::toResponse).toList();
     }
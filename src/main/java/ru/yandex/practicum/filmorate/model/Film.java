@@ -11,6 +11,7 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 
 import lombok.Data;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
 import ru.yandex.practicum.filmorate.validation.ReleaseDateValid;
 
 @Data
@@ -28,8 +29,9 @@ public class Film {
     @Positive(message = "Продолжительность фильма должна быть "
             + "положительным числом")
     private int duration;
-    private Set<Integer> likes = new HashSet<>();
+    private IntHashSet likes = new IntHashSet();
     private Set<Genre> genres = new HashSet<>();
     @JsonProperty("mpa")
     private Mpa mpaRating;
+    private long version;
 }
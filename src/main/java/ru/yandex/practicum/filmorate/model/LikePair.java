@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LikePair {
+    private Integer filmId;
+    private Integer userId;
+
+    // Элемент пакета из запроса может быть пустым или без одного из id
+    public static boolean isComplete(LikePair pair) {
+        return pair != null && pair.filmId != null && pair.userId != null;
+    }
+}
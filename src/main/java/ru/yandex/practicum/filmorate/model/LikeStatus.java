@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.model;
+
+public enum LikeStatus {
+    ADDED,
+    ALREADY_EXISTS,
+    FILM_NOT_FOUND,
+    USER_NOT_FOUND,
+    INVALID
+}
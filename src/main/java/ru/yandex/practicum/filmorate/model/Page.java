@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+@Data
+@AllArgsConstructor
+public class Page<T> {
+    public static final int MAX_LIMIT = 1000;
+
+    private List<T> items;
+    private Integer nextCursor;
+
+    public static <T> Page<T> of(List<T> rows, int limit, ToIntFunction<T> idExtractor) {
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new Page<>(items, idExtractor.applyAsInt(items.getLast()));
+    }
+}
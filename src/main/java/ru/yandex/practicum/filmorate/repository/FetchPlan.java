@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.repository;
+
+public enum FetchPlan {
+    CORE(false, false, false),
+    DEFAULT(true, true, false),
+    FULL(true, true, true);
+
+    private final boolean mpa;
+    private final boolean genres;
+    private final boolean likes;
+
+    FetchPlan(boolean mpa, boolean genres, boolean likes) {
+        this.mpa = mpa;
+        this.genres = genres;
+        this.likes = likes;
+    }
+
+    public boolean loadsMpa() {
+        return mpa;
+    }
+
+    public boolean loadsGenres() {
+        return genres;
+    }
+
+    public boolean loadsLikes() {
+        return likes;
+    }
+}
@@ -1,22 +1,79 @@
 package ru.yandex.practicum.filmorate.repository;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.HourlyLikes;
+import ru.yandex.practicum.filmorate.model.LikePair;
+import ru.yandex.practicum.filmorate.model.LikeStatus;
+import ru.yandex.practicum.filmorate.model.Page;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface FilmRepository {
     Film save(Film film);
 
+    List<Film> saveAll(List<Film> films);
+
     Film update(Film film);
 
-    Optional<Film> findById(int id);
+    default Optional<Film> findById(int id) {
+        return findById(id, FetchPlan.DEFAULT);
+    }
+
+    Optional<Film> findById(int id, FetchPlan plan);
+
+    default List<Film> findAll() {
+        return findAll(FetchPlan.DEFAULT);
+    }
+
+    List<Film> findAll(FetchPlan plan);
+
+    Page<Film> findAll(int afterId, int limit);
+
+    default List<Film> findByIds(List<Integer> ids) {
+        return findByIds(ids, FetchPlan.DEFAULT);
+    }
+
+    List<Film> findByIds(List<Integer> ids, FetchPlan plan);
+
+    boolean existsById(int id);
+
+    Optional<Long> findVersion(int id);
+
+    boolean existsAll(Collection<Integer> ids);
+
+    void exportAll(Consumer<Film> consumer);
 
-    List<Film> findAll();
+    void exportSearchTexts(Consumer<Film> consumer);
 
-    void addLike(int filmId, int userId);
+    boolean addLike(int filmId, int userId);
 
-    void removeLike(int filmId, int userId);
+    List<LikeStatus> addLikes(Collection<LikePair> pairs);
+
+    // Статусы, которые получили бы пары при addLikes сейчас; ничего не пишет
+    List<LikeStatus> checkLikes(Collection<LikePair> pairs);
+
+    Optional<LocalDateTime> removeLike(int filmId, int userId);
+
+    List<Boolean> removeLikes(Collection<LikePair> pairs);
+
+    boolean hasLike(int filmId, int userId);
 
     List<Film> findMostPopular(int count);
+
+    List<Film> findMostPopular(int count, Integer genreId, Integer year);
+
+    Map<Integer, int[]> findGenreIdsByFilm();
+
+    Map<Integer, Integer> findReleaseYears();
+
+    List<HourlyLikes> findHourlyLikesSince(LocalDateTime since);
+
+    Map<Integer, Integer> findLikesCounts();
+
+    Map<Integer, int[]> findLikedFilmIdsByUser();
 }
\ No newline at end of file
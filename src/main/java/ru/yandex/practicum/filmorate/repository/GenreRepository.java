@@ -11,4 +11,6 @@ public interface GenreRepository {
     List<Genre> findAll();
 
     List<Genre> findByIds(List<Integer> ids);
-}
\ No newline at end of file
+
+    void refresh();
+}
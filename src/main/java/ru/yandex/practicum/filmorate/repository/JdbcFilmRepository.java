@@ -1,6 +1,8 @@
 package ru.yandex.practicum.filmorate.repository;
 
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
@@ -8,12 +10,25 @@ import org.springframework.jdbc.support.KeyHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 import ru.yandex.practicum.filmorate.mapper.FilmResultSetExtractor;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
-
+import ru.yandex.practicum.filmorate.model.HourlyLikes;
+import ru.yandex.practicum.filmorate.model.LikePair;
+import ru.yandex.practicum.filmorate.model.LikeStatus;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Repository
 public class JdbcFilmRepository implements FilmRepository {
@@ -25,45 +40,128 @@ public class JdbcFilmRepository implements FilmRepository {
             "VALUES (:name, :description, :releaseDate, :duration, :mpaRatingId)";
 
     private static final String UPDATE_FILM_SQL =
+            "SELECT row_version FROM FINAL TABLE (" +
             "UPDATE films SET name = :name, description = :description, release_date = :releaseDate, " +
-            "duration = :duration, mpa_rating_id = :mpaRatingId WHERE id = :id";
+            "duration = :duration, mpa_rating_id = :mpaRatingId, row_version = row_version + 1 WHERE id = :id)";
 
     private static final String SELECT_FILMS_BASE_SQL =
-            "SELECT f.*, m.name AS mpa_name, " +
-            "g.id AS genre_id, g.name AS genre_name, " +
-            "fl.user_id AS like_user_id " +
+            "SELECT f.*, m.name AS mpa_name " +
+            "FROM films f " +
+            "LEFT JOIN mpa_ratings m ON f.mpa_rating_id = m.id ";
+
+    private static final String SELECT_FILMS_CORE_SQL =
+            "SELECT f.*, NULL AS mpa_name FROM films f ";
+
+    private static final String POPULAR_ORDER_SQL =
+            "ORDER BY f.likes_count DESC, f.id ASC " +
+            "LIMIT :count";
+
+    private static final String POPULAR_GENRE_JOIN_SQL =
+            "JOIN film_genres fg ON fg.film_id = f.id AND fg.genre_id = :genreId ";
+
+    private static final String POPULAR_YEAR_WHERE_SQL =
+            "WHERE f.release_date >= :yearStart AND f.release_date < :nextYearStart ";
+
+    private static final String SELECT_MOST_POPULAR_FILMS_SQL =
+            SELECT_FILMS_BASE_SQL + POPULAR_ORDER_SQL;
+
+    private static final String SELECT_MOST_POPULAR_BY_GENRE_SQL =
+            SELECT_FILMS_BASE_SQL + POPULAR_GENRE_JOIN_SQL + POPULAR_ORDER_SQL;
+
+    private static final String SELECT_MOST_POPULAR_BY_YEAR_SQL =
+            SELECT_FILMS_BASE_SQL + POPULAR_YEAR_WHERE_SQL + POPULAR_ORDER_SQL;
+
+    private static final String SELECT_MOST_POPULAR_BY_GENRE_AND_YEAR_SQL =
+            SELECT_FILMS_BASE_SQL + POPULAR_GENRE_JOIN_SQL + POPULAR_YEAR_WHERE_SQL + POPULAR_ORDER_SQL;
+
+    private static final String SELECT_ALL_FILM_GENRE_IDS_SQL =
+            "SELECT film_id, genre_id FROM film_genres ORDER BY film_id, genre_id";
+
+    private static final String SELECT_RELEASE_YEARS_SQL =
+            "SELECT id, EXTRACT(YEAR FROM release_date) AS release_year FROM films WHERE release_date IS NOT NULL";
+
+    private static final String SELECT_GENRES_BY_FILM_IDS_SQL =
+            "SELECT fg.film_id, g.id, g.name FROM film_genres fg " +
+            "JOIN genres g ON g.id = fg.genre_id " +
+            "WHERE fg.film_id IN (:filmIds) " +
+            "ORDER BY fg.film_id, g.id";
+
+    private static final String SELECT_LIKES_BY_FILM_IDS_SQL =
+            "SELECT film_id, user_id FROM film_likes WHERE film_id IN (:filmIds) ORDER BY film_id, user_id";
+
+    private static final String EXPORT_SEARCH_TEXTS_SQL =
+            "SELECT id, name, description FROM films ORDER BY id";
+
+    private static final String EXPORT_FILMS_SQL =
+            "SELECT f.*, m.name AS mpa_name, g.id AS genre_id, g.name AS genre_name " +
             "FROM films f " +
             "LEFT JOIN mpa_ratings m ON f.mpa_rating_id = m.id " +
             "LEFT JOIN film_genres fg ON f.id = fg.film_id " +
             "LEFT JOIN genres g ON fg.genre_id = g.id " +
-            "LEFT JOIN film_likes fl ON f.id = fl.film_id ";
+            "ORDER BY f.id, g.id";
 
-    private static final String SELECT_MOST_POPULAR_FILMS_SQL =
-            SELECT_FILMS_BASE_SQL +
-            "LEFT JOIN (SELECT film_id, COUNT(user_id) as likes_count FROM film_likes GROUP BY film_id) AS popular " +
-            "ON f.id = popular.film_id " +
-            "ORDER BY popular.likes_count DESC, f.id ASC " +
-            "LIMIT :count";
+    private static final String EXISTS_FILM_SQL =
+            "SELECT COUNT(*) FROM films WHERE id = :id";
+
+    private static final String SELECT_FILM_VERSION_SQL =
+            "SELECT row_version FROM films WHERE id = :id";
+
+    private static final String COUNT_FILMS_BY_IDS_SQL =
+            "SELECT COUNT(*) FROM films WHERE id IN (:ids)";
+
+    private static final String SELECT_EXISTING_FILM_IDS_SQL =
+            "SELECT id FROM films WHERE id IN (:ids)";
+
+    private static final String SELECT_EXISTING_USER_IDS_SQL =
+            "SELECT id FROM users WHERE id IN (:ids)";
+
+    private static final String SELECT_LIKES_COUNTS_SQL =
+            "SELECT id, likes_count FROM films";
+
+    private static final String SELECT_ALL_LIKES_BY_USER_SQL =
+            "SELECT user_id, film_id FROM film_likes ORDER BY user_id, film_id";
 
     private static final String ADD_LIKE_SQL =
-            "MERGE INTO film_likes (film_id, user_id) VALUES (:filmId, :userId)";
+            "MERGE INTO film_likes (film_id, user_id) KEY (film_id, user_id) VALUES (:filmId, :userId)";
+
+    // OLD TABLE отдаёт строки, которые уже были до MERGE; пустой результат значит, что строка вставлена
+    private static final String ADD_LIKE_RETURNING_EXISTING_SQL =
+            "SELECT COUNT(*) FROM OLD TABLE (" + ADD_LIKE_SQL + ")";
+
+    private static final String ADD_LIKES_RETURNING_EXISTING_SQL_PREFIX =
+            "SELECT film_id, user_id FROM OLD TABLE (MERGE INTO film_likes (film_id, user_id) KEY (film_id, user_id) VALUES ";
+
+    private static final String UPDATE_LIKES_COUNT_SQL =
+            "UPDATE films SET likes_count = likes_count + :delta WHERE id = :filmId";
+
+    private static final String EXISTS_LIKE_SQL =
+            "SELECT COUNT(*) FROM film_likes WHERE film_id = :filmId AND user_id = :userId";
+
+    private static final String SELECT_LIKES_BY_PAIRS_SQL_PREFIX =
+            "SELECT film_id, user_id FROM film_likes WHERE (film_id, user_id) IN (";
 
     private static final String REMOVE_LIKE_SQL =
             "DELETE FROM film_likes WHERE film_id = :filmId AND user_id = :userId";
 
-    private static final String DELETE_FILM_GENRES_SQL =
-            "DELETE FROM film_genres WHERE film_id = :filmId";
+    private static final String REMOVE_LIKE_RETURNING_TIME_SQL =
+            "SELECT liked_at FROM OLD TABLE (DELETE FROM film_likes WHERE film_id = :filmId AND user_id = :userId)";
+
+    private static final String SELECT_HOURLY_LIKES_SQL =
+            "SELECT film_id, DATE_TRUNC('HOUR', liked_at) AS like_hour, COUNT(*) AS likes FROM film_likes " +
+            "WHERE liked_at >= :since " +
+            "GROUP BY film_id, DATE_TRUNC('HOUR', liked_at)";
 
-    private static final String INSERT_FILM_GENRE_SQL =
-            "MERGE INTO film_genres (film_id, genre_id) KEY(film_id, genre_id) VALUES (:filmId, :genreId)";
+    private static final String SELECT_FILM_GENRE_IDS_SQL =
+            "SELECT genre_id FROM film_genres WHERE film_id = :filmId";
 
-    private static final String SELECT_FILM_GENRES_SQL =
-            "SELECT g.id, g.name FROM genres g " +
-            "JOIN film_genres fg ON g.id = fg.genre_id " +
-            "WHERE fg.film_id = :filmId";
+    private static final String DELETE_FILM_GENRE_SQL =
+            "DELETE FROM film_genres WHERE film_id = :filmId AND genre_id = :genreId";
 
-    private static final String SELECT_FILM_LIKES_SQL =
-            "SELECT user_id FROM film_likes WHERE film_id = :filmId";
+    private static final String INSERT_NEW_FILM_GENRE_SQL =
+            "INSERT INTO film_genres (film_id, genre_id) VALUES (:filmId, :genreId)";
+
+    private static final int IN_LIST_CHUNK_SIZE = 1000;
+    private static final int EXPORT_FETCH_SIZE = 500;
 
     private final NamedParameterJdbcOperations jdbc;
     private final FilmResultSetExtractor filmResultSetExtractor;
@@ -93,11 +191,54 @@ public class JdbcFilmRepository implements FilmRepository {
         int id = key.intValue();
         film.setId(id);
 
-        saveGenres(film);
+        if (film.getGenres() != null) {
+            insertGenres(id, film.getGenres().stream().map(Genre::getId).toList());
+        }
         log.debug("Фильм сохранён: {}", film);
         return film;
     }
 
+    @Override
+    @Transactional
+    public List<Film> saveAll(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        log.debug("Пакетное сохранение фильмов: {}", films.size());
+        MapSqlParameterSource[] filmParams = films.stream()
+                .map(film -> new MapSqlParameterSource()
+                        .addValue("name", film.getName())
+                        .addValue("description", film.getDescription())
+                        .addValue("releaseDate", film.getReleaseDate())
+                        .addValue("duration", film.getDuration())
+                        .addValue("mpaRatingId", film.getMpaRating().getId()))
+                .toArray(MapSqlParameterSource[]::new);
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbc.batchUpdate(INSERT_FILM_SQL, filmParams, keyHolder, new String[]{"id"});
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != films.size()) {
+            throw new RuntimeException("Не удалось получить сгенерированные идентификаторы фильмов");
+        }
+        List<MapSqlParameterSource> genreParams = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(((Number) keys.get(i).values().iterator().next()).intValue());
+            // фильмы новые, поэтому жанры вставляются без предварительного DELETE и MERGE
+            for (Genre genre : film.getGenres()) {
+                genreParams.add(new MapSqlParameterSource()
+                        .addValue("filmId", film.getId())
+                        .addValue("genreId", genre.getId()));
+            }
+        }
+        if (!genreParams.isEmpty()) {
+            jdbc.batchUpdate(INSERT_NEW_FILM_GENRE_SQL, genreParams.toArray(MapSqlParameterSource[]::new));
+        }
+        log.debug("Сохранено фильмов: {}, связей с жанрами: {}", films.size(), genreParams.size());
+        return films;
+    }
+
     @Override
     public Film update(Film film) {
         log.debug("Обновление фильма: {}", film);
@@ -109,91 +250,497 @@ public class JdbcFilmRepository implements FilmRepository {
                 .addValue("mpaRatingId", film.getMpaRating().getId())
                 .addValue("id", film.getId());
 
-        int updatedRows = jdbc.update(UPDATE_FILM_SQL, params);
-        if (updatedRows == 0) {
+        List<Long> versions = jdbc.queryForList(UPDATE_FILM_SQL, params, Long.class);
+        if (versions.isEmpty()) {
             log.warn("Фильм не найден id={}", film.getId());
             throw new ResponseStatusException(HttpStatus.NOT_FOUND,
                 "Фильм с id = " + film.getId() + " не найден");
         }
-        saveGenres(film);
+        film.setVersion(versions.getFirst());
+        updateGenres(film);
         log.debug("Фильм обновлён: {}", film);
-
-        film.setGenres(loadGenres(film.getId()));
-        film.setLikes(loadLikes(film.getId()));
-
         return film;
     }
 
     @Override
-    public Optional<Film> findById(int id) {
+    public Optional<Film> findById(int id, FetchPlan plan) {
         List<Film> films = findFilmsWithCondition("WHERE f.id = :id",
-                new MapSqlParameterSource("id", id));
+                new MapSqlParameterSource("id", id), plan);
         return films.isEmpty() ? Optional.empty() : Optional.of(films.getFirst());
     }
 
     @Override
-    public List<Film> findAll() {
-        return findFilmsWithCondition("", new MapSqlParameterSource());
+    public List<Film> findAll(FetchPlan plan) {
+        return findFilmsWithCondition("", new MapSqlParameterSource(), plan);
+    }
+
+    @Override
+    public Page<Film> findAll(int afterId, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("afterId", afterId)
+                .addValue("limit", limit + 1);
+        List<Film> films = findFilmsWithCondition("WHERE f.id > :afterId", " LIMIT :limit", params,
+                FetchPlan.DEFAULT);
+        return Page.of(films, limit, Film::getId);
+    }
+
+    @Override
+    public List<Film> findByIds(List<Integer> ids, FetchPlan plan) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, Film> filmsById = new HashMap<>();
+        findFilmsWithCondition("WHERE f.id IN (:ids)", new MapSqlParameterSource("ids", ids), plan)
+                .forEach(film -> filmsById.put(film.getId(), film));
+        return ids.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public boolean existsById(int id) {
+        Integer count = jdbc.queryForObject(EXISTS_FILM_SQL, new MapSqlParameterSource("id", id), Integer.class);
+        return count != null && count > 0;
+    }
+
+    @Override
+    public Optional<Long> findVersion(int id) {
+        List<Long> versions = jdbc.queryForList(SELECT_FILM_VERSION_SQL, new MapSqlParameterSource("id", id), Long.class);
+        return versions.isEmpty() ? Optional.empty() : Optional.of(versions.getFirst());
+    }
+
+    @Override
+    public boolean existsAll(Collection<Integer> ids) {
+        Set<Integer> distinctIds = new HashSet<>(ids);
+        if (distinctIds.isEmpty()) {
+            return true;
+        }
+        Integer count = jdbc.queryForObject(COUNT_FILMS_BY_IDS_SQL,
+                new MapSqlParameterSource("ids", distinctIds), Integer.class);
+        return count != null && count == distinctIds.size();
+    }
+
+    private List<Film> findFilmsWithCondition(String whereClause, MapSqlParameterSource params, FetchPlan plan) {
+        return findFilmsWithCondition(whereClause, "", params, plan);
     }
 
-    private List<Film> findFilmsWithCondition(String whereClause, MapSqlParameterSource params) {
-        String sql = SELECT_FILMS_BASE_SQL + whereClause + " ORDER BY f.id, g.id, fl.user_id";
-        return jdbc.query(sql, params, filmResultSetExtractor);
+    private List<Film> findFilmsWithCondition(String whereClause, String limitClause,
+                                              MapSqlParameterSource params, FetchPlan plan) {
+        String baseSql = plan.loadsMpa() ? SELECT_FILMS_BASE_SQL : SELECT_FILMS_CORE_SQL;
+        String sql = baseSql + whereClause + " ORDER BY f.id" + limitClause;
+        return loadAssociations(jdbc.query(sql, params, filmResultSetExtractor), plan);
+    }
+
+    private List<Film> loadAssociations(List<Film> films, FetchPlan plan) {
+        if (films.isEmpty() || !(plan.loadsGenres() || plan.loadsLikes())) {
+            return films;
+        }
+        Map<Integer, Film> filmsById = new HashMap<>();
+        films.forEach(film -> filmsById.put(film.getId(), film));
+        List<Integer> filmIds = new ArrayList<>(filmsById.keySet());
+
+        for (int from = 0; from < filmIds.size(); from += IN_LIST_CHUNK_SIZE) {
+            MapSqlParameterSource params = new MapSqlParameterSource("filmIds",
+                    filmIds.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, filmIds.size())));
+
+            if (plan.loadsGenres()) {
+                jdbc.query(SELECT_GENRES_BY_FILM_IDS_SQL, params, rs -> {
+                    Genre genre = new Genre();
+                    genre.setId(rs.getInt("id"));
+                    genre.setName(rs.getString("name"));
+                    filmsById.get(rs.getInt("film_id")).getGenres().add(genre);
+                });
+            }
+            if (plan.loadsLikes()) {
+                jdbc.query(SELECT_LIKES_BY_FILM_IDS_SQL, params, rs -> {
+                    filmsById.get(rs.getInt("film_id")).getLikes().add(rs.getInt("user_id"));
+                });
+            }
+        }
+        return films;
     }
 
     @Override
-    public void addLike(int filmId, int userId) {
+    public void exportAll(Consumer<Film> consumer) {
+        log.debug("Выгрузка всех фильмов");
+        Film[] current = new Film[1];
+        jdbc.getJdbcOperations().query(con -> {
+            PreparedStatement ps = con.prepareStatement(EXPORT_FILMS_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(EXPORT_FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            int filmId = rs.getInt("id");
+            if (current[0] == null || current[0].getId() != filmId) {
+                if (current[0] != null) {
+                    consumer.accept(current[0]);
+                }
+                current[0] = filmResultSetExtractor.mapFilm(rs);
+            }
+            int genreId = rs.getInt("genre_id");
+            if (!rs.wasNull()) {
+                Genre genre = new Genre();
+                genre.setId(genreId);
+                genre.setName(rs.getString("genre_name"));
+                current[0].getGenres().add(genre);
+            }
+        });
+        if (current[0] != null) {
+            consumer.accept(current[0]);
+        }
+    }
+
+    @Override
+    @Transactional
+    public boolean addLike(int filmId, int userId) {
         log.debug("Добавление лайка к фильму {} от пользователя {}", filmId, userId);
+        if (!mergeLike(new LikePair(filmId, userId))) {
+            log.debug("Лайк уже существует");
+            return false;
+        }
+        changeLikesCount(filmId, 1);
+        log.debug("Лайк добавлен");
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public List<LikeStatus> addLikes(Collection<LikePair> pairs) {
+        log.debug("Пакетное добавление лайков: {}", pairs.size());
+        List<LikeStatus> statuses = classifyLikes(pairs);
+        List<LikePair> accepted = new ArrayList<>();
+        List<Integer> acceptedPositions = new ArrayList<>();
+        int position = 0;
+        for (LikePair pair : pairs) {
+            if (statuses.get(position) == null) {
+                acceptedPositions.add(position);
+                accepted.add(pair);
+            }
+            position++;
+        }
+        if (accepted.isEmpty()) {
+            return statuses;
+        }
+
+        Set<LikePair> existing = mergeLikes(new LinkedHashSet<>(accepted));
+
+        // Повтор пары внутри пакета считается уже существующим лайком
+        Set<LikePair> added = new HashSet<>();
+        Map<Integer, Integer> deltas = new HashMap<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            LikePair pair = accepted.get(i);
+            if (!existing.contains(pair) && added.add(pair)) {
+                statuses.set(acceptedPositions.get(i), LikeStatus.ADDED);
+                deltas.merge(pair.getFilmId(), 1, Integer::sum);
+            } else {
+                statuses.set(acceptedPositions.get(i), LikeStatus.ALREADY_EXISTS);
+            }
+        }
+        changeLikesCounts(deltas);
+        log.debug("Добавлено лайков: {}", deltas.values().stream().mapToInt(Integer::intValue).sum());
+        return statuses;
+    }
+
+    @Override
+    public List<LikeStatus> checkLikes(Collection<LikePair> pairs) {
+        List<LikeStatus> statuses = classifyLikes(pairs);
+        Set<LikePair> accepted = new LinkedHashSet<>();
+        int position = 0;
+        for (LikePair pair : pairs) {
+            if (statuses.get(position++) == null) {
+                accepted.add(pair);
+            }
+        }
+        Set<LikePair> existing = findLikes(accepted);
+        position = 0;
+        for (LikePair pair : pairs) {
+            if (statuses.get(position) == null) {
+                statuses.set(position, existing.contains(pair) ? LikeStatus.ALREADY_EXISTS : LikeStatus.ADDED);
+            }
+            position++;
+        }
+        return statuses;
+    }
+
+    @Override
+    @Transactional
+    public List<Boolean> removeLikes(Collection<LikePair> pairs) {
+        if (pairs.isEmpty()) {
+            return List.of();
+        }
+        log.debug("Пакетное удаление лайков: {}", pairs.size());
+        List<LikePair> items = new ArrayList<>(pairs);
+        int[] counts = jdbc.batchUpdate(REMOVE_LIKE_SQL, items.stream()
+                .map(pair -> new MapSqlParameterSource()
+                        .addValue("filmId", pair.getFilmId())
+                        .addValue("userId", pair.getUserId()))
+                .toArray(MapSqlParameterSource[]::new));
+
+        List<Boolean> removed = new ArrayList<>(items.size());
+        Map<Integer, Integer> deltas = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            removed.add(counts[i] > 0);
+            if (counts[i] > 0) {
+                deltas.merge(items.get(i).getFilmId(), -1, Integer::sum);
+            }
+        }
+        changeLikesCounts(deltas);
+        return removed;
+    }
+
+    @Override
+    public boolean hasLike(int filmId, int userId) {
         MapSqlParameterSource params = new MapSqlParameterSource()
                 .addValue("filmId", filmId)
                 .addValue("userId", userId);
-        jdbc.update(ADD_LIKE_SQL, params);
-        log.debug("Лайк добавлен");
+        Integer count = jdbc.queryForObject(EXISTS_LIKE_SQL, params, Integer.class);
+        return count != null && count > 0;
+    }
+
+    private void changeLikesCounts(Map<Integer, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        jdbc.batchUpdate(UPDATE_LIKES_COUNT_SQL, deltas.entrySet().stream()
+                .map(delta -> new MapSqlParameterSource()
+                        .addValue("filmId", delta.getKey())
+                        .addValue("delta", delta.getValue()))
+                .toArray(MapSqlParameterSource[]::new));
+    }
+
+    // Статусы отклонённых пар; null — пара корректна и фильм с пользователем существуют
+    private List<LikeStatus> classifyLikes(Collection<LikePair> pairs) {
+        Set<Integer> existingFilms = findExistingIds(SELECT_EXISTING_FILM_IDS_SQL,
+                pairs.stream().filter(LikePair::isComplete).map(LikePair::getFilmId).collect(Collectors.toSet()));
+        Set<Integer> existingUsers = findExistingIds(SELECT_EXISTING_USER_IDS_SQL,
+                pairs.stream().filter(LikePair::isComplete).map(LikePair::getUserId).collect(Collectors.toSet()));
+
+        List<LikeStatus> statuses = new ArrayList<>(pairs.size());
+        for (LikePair pair : pairs) {
+            if (!LikePair.isComplete(pair)) {
+                statuses.add(LikeStatus.INVALID);
+            } else if (!existingFilms.contains(pair.getFilmId())) {
+                statuses.add(LikeStatus.FILM_NOT_FOUND);
+            } else if (!existingUsers.contains(pair.getUserId())) {
+                statuses.add(LikeStatus.USER_NOT_FOUND);
+            } else {
+                statuses.add(null);
+            }
+        }
+        return statuses;
+    }
+
+    // Пары, уже записанные в film_likes; один запрос на порцию пар
+    private Set<LikePair> findLikes(Set<LikePair> pairs) {
+        Set<LikePair> existing = new HashSet<>();
+        List<LikePair> pairList = new ArrayList<>(pairs);
+        for (int from = 0; from < pairList.size(); from += IN_LIST_CHUNK_SIZE) {
+            List<LikePair> chunk = pairList.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, pairList.size()));
+            String sql = SELECT_LIKES_BY_PAIRS_SQL_PREFIX
+                    + String.join(", ", Collections.nCopies(chunk.size(), "(?, ?)")) + ")";
+            Object[] args = new Object[chunk.size() * 2];
+            for (int i = 0; i < chunk.size(); i++) {
+                args[2 * i] = chunk.get(i).getFilmId();
+                args[2 * i + 1] = chunk.get(i).getUserId();
+            }
+            jdbc.getJdbcOperations().query(sql, (RowCallbackHandler) rs ->
+                    existing.add(new LikePair(rs.getInt("film_id"), rs.getInt("user_id"))), args);
+        }
+        return existing;
+    }
+
+    // true, если строка вставлена этим запросом
+    private boolean mergeLike(LikePair pair) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("filmId", pair.getFilmId())
+                .addValue("userId", pair.getUserId());
+        try {
+            Integer existing = jdbc.queryForObject(ADD_LIKE_RETURNING_EXISTING_SQL, params, Integer.class);
+            return existing != null && existing == 0;
+        } catch (DuplicateKeyException e) {
+            // параллельный запрос успел вставить ту же пару — лайк уже есть
+            return false;
+        }
+    }
+
+    // Один MERGE на порцию пар; возвращает пары, которые уже были в таблице
+    private Set<LikePair> mergeLikes(Set<LikePair> pairs) {
+        Set<LikePair> existing = new HashSet<>();
+        List<LikePair> pairList = new ArrayList<>(pairs);
+        for (int from = 0; from < pairList.size(); from += IN_LIST_CHUNK_SIZE) {
+            List<LikePair> chunk = pairList.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, pairList.size()));
+            String sql = ADD_LIKES_RETURNING_EXISTING_SQL_PREFIX
+                    + String.join(", ", Collections.nCopies(chunk.size(), "(?, ?)")) + ")";
+            Object[] args = new Object[chunk.size() * 2];
+            for (int i = 0; i < chunk.size(); i++) {
+                args[2 * i] = chunk.get(i).getFilmId();
+                args[2 * i + 1] = chunk.get(i).getUserId();
+            }
+            try {
+                jdbc.getJdbcOperations().query(sql, (RowCallbackHandler) rs ->
+                        existing.add(new LikePair(rs.getInt("film_id"), rs.getInt("user_id"))), args);
+            } catch (DuplicateKeyException e) {
+                // гонка с параллельной вставкой: порция разбирается по одной паре
+                for (LikePair pair : chunk) {
+                    if (!mergeLike(pair)) {
+                        existing.add(pair);
+                    }
+                }
+            }
+        }
+        return existing;
+    }
+
+    private Set<Integer> findExistingIds(String sql, Set<Integer> ids) {
+        Set<Integer> existing = new HashSet<>();
+        List<Integer> idList = new ArrayList<>(ids);
+        for (int from = 0; from < idList.size(); from += IN_LIST_CHUNK_SIZE) {
+            MapSqlParameterSource params = new MapSqlParameterSource("ids",
+                    idList.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, idList.size())));
+            jdbc.query(sql, params, rs -> {
+                existing.add(rs.getInt("id"));
+            });
+        }
+        return existing;
     }
 
     @Override
-    public void removeLike(int filmId, int userId) {
+    @Transactional
+    public Optional<LocalDateTime> removeLike(int filmId, int userId) {
         log.debug("Удаление лайка у фильма {} пользователем {}", filmId, userId);
         MapSqlParameterSource params = new MapSqlParameterSource()
                 .addValue("filmId", filmId)
                 .addValue("userId", userId);
-        jdbc.update(REMOVE_LIKE_SQL, params);
+        List<Timestamp> removed = jdbc.queryForList(REMOVE_LIKE_RETURNING_TIME_SQL, params, Timestamp.class);
+        if (removed.isEmpty()) {
+            log.debug("Лайк не найден");
+            return Optional.empty();
+        }
+        changeLikesCount(filmId, -1);
         log.debug("Лайк удалён");
+        // liked_at заполняется по умолчанию; время неизвестно только у строк, вставленных с явным NULL
+        Timestamp likedAt = removed.get(0);
+        return Optional.of(likedAt == null ? LocalDateTime.MIN : likedAt.toLocalDateTime());
+    }
+
+    private void changeLikesCount(int filmId, int delta) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("filmId", filmId)
+                .addValue("delta", delta);
+        jdbc.update(UPDATE_LIKES_COUNT_SQL, params);
     }
 
     @Override
     public List<Film> findMostPopular(int count) {
         MapSqlParameterSource params = new MapSqlParameterSource("count", count);
-        return jdbc.query(SELECT_MOST_POPULAR_FILMS_SQL, params, filmResultSetExtractor);
+        return loadAssociations(jdbc.query(SELECT_MOST_POPULAR_FILMS_SQL, params, filmResultSetExtractor),
+                FetchPlan.DEFAULT);
     }
 
-    private void saveGenres(Film film) {
-        MapSqlParameterSource deleteParams = new MapSqlParameterSource("filmId", film.getId());
-        jdbc.update(DELETE_FILM_GENRES_SQL, deleteParams);
+    @Override
+    public void exportSearchTexts(Consumer<Film> consumer) {
+        jdbc.getJdbcOperations().query(con -> {
+            PreparedStatement ps = con.prepareStatement(EXPORT_SEARCH_TEXTS_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(EXPORT_FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            Film film = new Film();
+            film.setId(rs.getInt("id"));
+            film.setName(rs.getString("name"));
+            film.setDescription(rs.getString("description"));
+            consumer.accept(film);
+        });
+    }
 
-        if (film.getGenres() != null && !film.getGenres().isEmpty()) {
-            MapSqlParameterSource[] batchParams = film.getGenres().stream()
-                    .map(genre -> new MapSqlParameterSource()
-                            .addValue("filmId", film.getId())
-                            .addValue("genreId", genre.getId()))
-                    .toArray(MapSqlParameterSource[]::new);
+    @Override
+    public List<Film> findMostPopular(int count, Integer genreId, Integer year) {
+        if (genreId == null && year == null) {
+            return findMostPopular(count);
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("count", count)
+                .addValue("genreId", genreId);
+        if (year != null) {
+            params.addValue("yearStart", LocalDate.of(year, 1, 1))
+                    .addValue("nextYearStart", LocalDate.of(year + 1, 1, 1));
+        }
+        String sql = genreId == null ? SELECT_MOST_POPULAR_BY_YEAR_SQL
+                : year == null ? SELECT_MOST_POPULAR_BY_GENRE_SQL
+                : SELECT_MOST_POPULAR_BY_GENRE_AND_YEAR_SQL;
+        return loadAssociations(jdbc.query(sql, params, filmResultSetExtractor), FetchPlan.DEFAULT);
+    }
 
-            jdbc.batchUpdate(INSERT_FILM_GENRE_SQL, batchParams);
+    @Override
+    public Map<Integer, int[]> findGenreIdsByFilm() {
+        Map<Integer, SortedIntSet> genres = new HashMap<>();
+        jdbc.query(SELECT_ALL_FILM_GENRE_IDS_SQL, (RowCallbackHandler) rs ->
+                genres.computeIfAbsent(rs.getInt("film_id"), id -> new SortedIntSet()).add(rs.getInt("genre_id")));
+        Map<Integer, int[]> result = new HashMap<>();
+        genres.forEach((filmId, ids) -> result.put(filmId, ids.toArray()));
+        return result;
+    }
+
+    @Override
+    public Map<Integer, Integer> findReleaseYears() {
+        Map<Integer, Integer> years = new HashMap<>();
+        jdbc.query(SELECT_RELEASE_YEARS_SQL, (RowCallbackHandler) rs ->
+                years.put(rs.getInt("id"), rs.getInt("release_year")));
+        return years;
+    }
+
+    @Override
+    public Map<Integer, Integer> findLikesCounts() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        jdbc.query(SELECT_LIKES_COUNTS_SQL, rs -> {
+            counts.put(rs.getInt("id"), rs.getInt("likes_count"));
+        });
+        return counts;
+    }
+
+    @Override
+    public Map<Integer, int[]> findLikedFilmIdsByUser() {
+        Map<Integer, SortedIntSet> likes = new HashMap<>();
+        jdbc.query(SELECT_ALL_LIKES_BY_USER_SQL, (RowCallbackHandler) rs ->
+                likes.computeIfAbsent(rs.getInt("user_id"), id -> new SortedIntSet()).add(rs.getInt("film_id")));
+        Map<Integer, int[]> result = new HashMap<>(likes.size() * 2);
+        likes.forEach((userId, films) -> result.put(userId, films.toArray()));
+        return result;
+    }
+
+    @Override
+    public List<HourlyLikes> findHourlyLikesSince(LocalDateTime since) {
+        return jdbc.query(SELECT_HOURLY_LIKES_SQL, new MapSqlParameterSource("since", since),
+                (rs, rowNum) -> new HourlyLikes(rs.getInt("film_id"),
+                        rs.getTimestamp("like_hour").toLocalDateTime(), rs.getInt("likes")));
+    }
+
+    // Пишутся только изменения: жанры, которых больше нет, удаляются, новые — добавляются
+    private void updateGenres(Film film) {
+        Set<Integer> current = new HashSet<>(jdbc.queryForList(SELECT_FILM_GENRE_IDS_SQL,
+                new MapSqlParameterSource("filmId", film.getId()), Integer.class));
+        Set<Integer> wanted = new LinkedHashSet<>();
+        film.getGenres().forEach(genre -> wanted.add(genre.getId()));
+
+        List<Integer> removed = current.stream().filter(id -> !wanted.contains(id)).toList();
+        List<Integer> added = wanted.stream().filter(id -> !current.contains(id)).toList();
+        if (!removed.isEmpty()) {
+            jdbc.batchUpdate(DELETE_FILM_GENRE_SQL, genreParams(film.getId(), removed));
         }
+        insertGenres(film.getId(), added);
     }
 
-    private Set<Genre> loadGenres(int filmId) {
-        MapSqlParameterSource params = new MapSqlParameterSource("filmId", filmId);
-        return new LinkedHashSet<>(jdbc.query(SELECT_FILM_GENRES_SQL, params, (rs, rowNum) -> {
-            Genre genre = new Genre();
-            genre.setId(rs.getInt("id"));
-            genre.setName(rs.getString("name"));
-            return genre;
-        }));
+    private void insertGenres(int filmId, List<Integer> genreIds) {
+        if (!genreIds.isEmpty()) {
+            jdbc.batchUpdate(INSERT_NEW_FILM_GENRE_SQL, genreParams(filmId, genreIds));
+        }
     }
 
-    private Set<Integer> loadLikes(int filmId) {
-        MapSqlParameterSource params = new MapSqlParameterSource("filmId", filmId);
-        return new HashSet<>(jdbc.query(SELECT_FILM_LIKES_SQL, params, (rs, rowNum) -> rs.getInt("user_id")));
+    private static MapSqlParameterSource[] genreParams(int filmId, List<Integer> genreIds) {
+        return genreIds.stream()
+                .map(genreId -> new MapSqlParameterSource()
+                        .addValue("filmId", filmId)
+                        .addValue("genreId", genreId))
+                .toArray(MapSqlParameterSource[]::new);
     }
 }
\ No newline at end of file
@@ -1,66 +1,87 @@
 package ru.yandex.practicum.filmorate.repository;
 
+import jakarta.annotation.PostConstruct;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Genre;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Repository
 public class JdbcGenreRepository implements GenreRepository {
 
-    private static final String SELECT_GENRE_BY_ID_SQL = "SELECT id, name, description FROM genres WHERE id = ?";
     private static final String SELECT_ALL_GENRES_SQL = "SELECT id, name, description FROM genres ORDER BY id";
-    private static final String SELECT_GENRES_BY_IDS_SQL = "SELECT id, name, description FROM genres WHERE id IN (%s) ORDER BY id";
 
     private final JdbcTemplate jdbcTemplate;
 
+    // Справочник неизменяем и целиком заменяется в refresh(), поэтому читается без блокировок
+    private volatile Map<Integer, Genre> dictionary = Map.of();
+
     public JdbcGenreRepository(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
     }
 
+    @PostConstruct
     @Override
-    public Optional<Genre> findById(int id) {
-        log.debug("Поиск рейтинга MPA по id: {}", id);
-        List<Genre> genres = jdbcTemplate.query(SELECT_GENRE_BY_ID_SQL, (rs, rowNum) -> {
+    public void refresh() {
+        List<Genre> genres = jdbcTemplate.query(SELECT_ALL_GENRES_SQL, (rs, rowNum) -> {
             Genre genre = new Genre();
             genre.setId(rs.getInt("id"));
             genre.setName(rs.getString("name"));
             genre.setDescription(rs.getString("description"));
             return genre;
-        }, id);
-        return genres.isEmpty() ? Optional.empty() : Optional.of(genres.getFirst());
+        });
+        dictionary = Map.copyOf(genres.stream().collect(Collectors.toMap(Genre::getId, Function.identity())));
+        log.info("Справочник жанров загружен: {} записей", dictionary.size());
+    }
+
+    @Override
+    public Optional<Genre> findById(int id) {
+        log.debug("Поиск жанра по id: {}", id);
+        return Optional.ofNullable(dictionary.get(id)).map(JdbcGenreRepository::copy);
     }
 
     @Override
     public List<Genre> findAll() {
         log.debug("Find all genres");
-        return jdbcTemplate.query(SELECT_ALL_GENRES_SQL, (rs, rowNum) -> {
-            Genre genre = new Genre();
-            genre.setId(rs.getInt("id"));
-            genre.setName(rs.getString("name"));
-            genre.setDescription(rs.getString("description"));
-            return genre;
-        });
+        return dictionary.values().stream()
+                .sorted(Comparator.comparingInt(Genre::getId))
+                .map(JdbcGenreRepository::copy)
+                .toList();
     }
 
     @Override
     public List<Genre> findByIds(List<Integer> ids) {
         if (ids == null || ids.isEmpty()) {
-            return java.util.Collections.emptyList();
+            return Collections.emptyList();
         }
         log.debug("Find genres by ids: {}", ids);
-        String placeholders = String.join(",", ids.stream().map(id -> "?").toArray(String[]::new));
-        String sql = String.format(SELECT_GENRES_BY_IDS_SQL, placeholders);
-        return jdbcTemplate.query(sql, (rs, rowNum) -> {
-            Genre genre = new Genre();
-            genre.setId(rs.getInt("id"));
-            genre.setName(rs.getString("name"));
-            genre.setDescription(rs.getString("description"));
-            return genre;
-        }, ids.toArray());
+        // Как и прежний SELECT ... WHERE id IN (...): без дублей, по возрастанию id
+        Map<Integer, Genre> snapshot = dictionary;
+        return ids.stream()
+                .distinct()
+                .map(snapshot::get)
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparingInt(Genre::getId))
+                .map(JdbcGenreRepository::copy)
+                .toList();
+    }
+
+    // Модель изменяемая, наружу отдаются копии, чтобы никто не испортил справочник
+    private static Genre copy(Genre genre) {
+        Genre copy = new Genre();
+        copy.setId(genre.getId());
+        copy.setName(genre.getName());
+        copy.setDescription(genre.getDescription());
+        return copy;
     }
-}
\ No newline at end of file
+}
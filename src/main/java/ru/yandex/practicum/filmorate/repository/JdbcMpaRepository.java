@@ -1,48 +1,64 @@
 package ru.yandex.practicum.filmorate.repository;
 
+import jakarta.annotation.PostConstruct;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Repository
 public class JdbcMpaRepository implements MpaRepository {
 
-    private static final String SELECT_MPA_BY_ID_SQL = "SELECT id, name, description FROM mpa_ratings WHERE id = ?";
     private static final String SELECT_ALL_MPA_SQL = "SELECT id, name, description FROM mpa_ratings ORDER BY id";
 
     private final JdbcTemplate jdbcTemplate;
 
+    // Справочник неизменяем и целиком заменяется в refresh(), поэтому читается без блокировок
+    private volatile Map<Integer, Mpa> dictionary = Map.of();
+
     public JdbcMpaRepository(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
     }
 
+    @PostConstruct
     @Override
-    public Optional<Mpa> findById(int id) {
-        log.debug("Поиск жанра по id: {}", id);
-        List<Mpa> mpaList = jdbcTemplate.query(SELECT_MPA_BY_ID_SQL, (rs, rowNum) -> {
+    public void refresh() {
+        List<Mpa> mpaList = jdbcTemplate.query(SELECT_ALL_MPA_SQL, (rs, rowNum) -> {
             Mpa mpa = new Mpa();
             mpa.setId(rs.getInt("id"));
             mpa.setName(rs.getString("name"));
             mpa.setDescription(rs.getString("description"));
             return mpa;
-        }, id);
-        return mpaList.isEmpty() ? Optional.empty() : Optional.of(mpaList.getFirst());
+        });
+        dictionary = Map.copyOf(mpaList.stream().collect(Collectors.toMap(Mpa::getId, Function.identity())));
+        log.info("Справочник MPA загружен: {} записей", dictionary.size());
+    }
+
+    @Override
+    public Optional<Mpa> findById(int id) {
+        log.debug("Поиск рейтинга MPA по id: {}", id);
+        return Optional.ofNullable(dictionary.get(id)).map(JdbcMpaRepository::copy);
     }
 
     @Override
     public List<Mpa> findAll() {
         log.debug("Find all MPA");
-        return jdbcTemplate.query(SELECT_ALL_MPA_SQL, (rs, rowNum) -> {
-            Mpa mpa = new Mpa();
-            mpa.setId(rs.getInt("id"));
-            mpa.setName(rs.getString("name"));
-            mpa.setDescription(rs.getString("description"));
-            return mpa;
-        });
+        return dictionary.values().stream()
+                .sorted(Comparator.comparingInt(Mpa::getId))
+                .map(JdbcMpaRepository::copy)
+                .toList();
+    }
+
+    // Модель изменяемая, наружу отдаются копии, чтобы никто не испортил справочник
+    private static Mpa copy(Mpa mpa) {
+        return new Mpa(mpa.getId(), mpa.getName(), mpa.getDescription());
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.repository;
 
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
@@ -8,14 +9,26 @@ import org.springframework.jdbc.support.KeyHolder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Repository;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 @Slf4j
 @Repository
@@ -25,7 +38,8 @@ public class JdbcUserRepository implements UserRepository {
             "INSERT INTO users (email, login, name, birthday) VALUES (:email, :login, :name, :birthday)";
 
     private static final String UPDATE_USER_SQL =
-            "UPDATE users SET email = :email, login = :login, name = :name, birthday = :birthday WHERE id = :id";
+            "UPDATE users SET email = :email, login = :login, name = :name, birthday = :birthday, " +
+            "row_version = row_version + 1 WHERE id = :id";
 
     private static final String SELECT_USER_BY_ID_SQL =
             "SELECT * FROM users WHERE id = :id";
@@ -33,6 +47,26 @@ public class JdbcUserRepository implements UserRepository {
     private static final String SELECT_ALL_USERS_SQL =
             "SELECT * FROM users";
 
+    private static final String SELECT_USERS_BY_IDS_SQL =
+            "SELECT * FROM users WHERE id IN (:ids)";
+
+    private static final String SELECT_USERS_PAGE_SQL =
+            "SELECT * FROM users WHERE id > :afterId ORDER BY id LIMIT :limit";
+
+    private static final String EXISTS_USER_SQL =
+            "SELECT COUNT(*) FROM users WHERE id = :id";
+
+    private static final String SELECT_USER_VERSION_SQL =
+            "SELECT row_version FROM users WHERE id = :id";
+
+    private static final String COUNT_USERS_BY_IDS_SQL =
+            "SELECT COUNT(*) FROM users WHERE id IN (:ids)";
+
+    private static final String EXPORT_USERS_SQL =
+            "SELECT * FROM users ORDER BY id";
+
+    private static final int EXPORT_FETCH_SIZE = 500;
+
     private static final String ADD_FRIEND_SQL =
             "MERGE INTO friendships (user_id, friend_id, status) VALUES (:userId, :friendId, :status)";
 
@@ -44,6 +78,18 @@ public class JdbcUserRepository implements UserRepository {
             "JOIN friendships f ON u.id = f.friend_id " +
             "WHERE f.user_id = :userId AND f.status = :status";
 
+    private static final String SELECT_ALL_CONFIRMED_FRIEND_IDS_SQL =
+            "SELECT user_id, friend_id FROM friendships WHERE status = :status ORDER BY user_id, friend_id";
+
+    private static final String SELECT_ALL_USER_IDS_SQL =
+            "SELECT id FROM users ORDER BY id";
+
+    private static final String SELECT_FRIEND_VERSIONS_SQL =
+            "SELECT u.id, u.row_version FROM users u " +
+            "JOIN friendships f ON u.id = f.friend_id " +
+            "WHERE f.user_id = :userId AND f.status = :status " +
+            "ORDER BY u.id";
+
     private static final String SELECT_COMMON_FRIENDS_SQL =
             "SELECT u.* FROM users u " +
             "JOIN friendships f1 ON u.id = f1.friend_id " +
@@ -52,7 +98,13 @@ public class JdbcUserRepository implements UserRepository {
             "AND f1.status = :status AND f2.status = :status";
 
     private static final String SELECT_USER_FRIENDS_SQL =
-            "SELECT friend_id FROM friendships WHERE user_id = :userId";
+            "SELECT friend_id FROM friendships WHERE user_id = :userId ORDER BY friend_id";
+
+    private static final String SELECT_ALL_FRIENDSHIPS_SQL =
+            "SELECT user_id, friend_id FROM friendships ORDER BY user_id, friend_id";
+
+    private static final String SELECT_FRIENDSHIPS_BY_USER_IDS_SQL =
+            "SELECT user_id, friend_id FROM friendships WHERE user_id IN (:userIds) ORDER BY user_id, friend_id";
 
     private final NamedParameterJdbcOperations jdbc;
     private static final RowMapper<User> USER_ROW_MAPPER = (rs, rowNum) -> {
@@ -126,12 +178,73 @@ public class JdbcUserRepository implements UserRepository {
     @Override
     public List<User> findAll() {
         List<User> users = jdbc.query(SELECT_ALL_USERS_SQL, USER_ROW_MAPPER);
-        for (User user : users) {
-            user.setFriends(loadFriends(user.getId()));
-        }
+        attachFriends(users, SELECT_ALL_FRIENDSHIPS_SQL, new MapSqlParameterSource());
         return users;
     }
 
+    @Override
+    public List<User> findByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, User> usersById = new HashMap<>();
+        jdbc.query(SELECT_USERS_BY_IDS_SQL, new MapSqlParameterSource("ids", ids), USER_ROW_MAPPER)
+                .forEach(user -> usersById.put(user.getId(), user));
+        return ids.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public Page<User> findAll(int afterId, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("afterId", afterId)
+                .addValue("limit", limit + 1);
+        List<User> users = jdbc.query(SELECT_USERS_PAGE_SQL, params, USER_ROW_MAPPER);
+        Page<User> page = Page.of(users, limit, User::getId);
+        if (!page.getItems().isEmpty()) {
+            List<Integer> userIds = page.getItems().stream().map(User::getId).toList();
+            attachFriends(page.getItems(), SELECT_FRIENDSHIPS_BY_USER_IDS_SQL,
+                    new MapSqlParameterSource("userIds", userIds));
+        }
+        return page;
+    }
+
+    @Override
+    public boolean existsById(int id) {
+        Integer count = jdbc.queryForObject(EXISTS_USER_SQL, new MapSqlParameterSource("id", id), Integer.class);
+        return count != null && count > 0;
+    }
+
+    @Override
+    public Optional<Long> findVersion(int id) {
+        List<Long> versions = jdbc.queryForList(SELECT_USER_VERSION_SQL, new MapSqlParameterSource("id", id), Long.class);
+        return versions.isEmpty() ? Optional.empty() : Optional.of(versions.getFirst());
+    }
+
+    @Override
+    public boolean existsAll(Collection<Integer> ids) {
+        Set<Integer> distinctIds = new HashSet<>(ids);
+        if (distinctIds.isEmpty()) {
+            return true;
+        }
+        Integer count = jdbc.queryForObject(COUNT_USERS_BY_IDS_SQL,
+                new MapSqlParameterSource("ids", distinctIds), Integer.class);
+        return count != null && count == distinctIds.size();
+    }
+
+    @Override
+    public void exportAll(Consumer<User> consumer) {
+        log.debug("Выгрузка всех пользователей");
+        jdbc.getJdbcOperations().query(con -> {
+            PreparedStatement ps = con.prepareStatement(EXPORT_USERS_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(EXPORT_FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(USER_ROW_MAPPER.mapRow(rs, 0)));
+    }
+
     @Override
     public void addFriend(int userId, int friendId) {
         log.debug("Добавление в друзья: userId={}, friendId={}", userId, friendId);
@@ -139,18 +252,28 @@ public class JdbcUserRepository implements UserRepository {
                 .addValue("userId", userId)
                 .addValue("friendId", friendId)
                 .addValue("status", FriendshipStatus.CONFIRMED.name());
-        jdbc.update(ADD_FRIEND_SQL, params);
+        try {
+            jdbc.update(ADD_FRIEND_SQL, params);
+        } catch (DuplicateKeyException e) {
+            // параллельный запрос успел вставить ту же пару — повторное добавление не ошибка
+            log.debug("Дружба уже существует");
+            return;
+        }
         log.debug("Друг добавлен");
     }
 
     @Override
-    public void removeFriend(int userId, int friendId) {
+    public boolean removeFriend(int userId, int friendId) {
         log.debug("Удаление из друзей: userId={}, friendId={}", userId, friendId);
         MapSqlParameterSource params = new MapSqlParameterSource()
                 .addValue("userId", userId)
                 .addValue("friendId", friendId);
-        jdbc.update(REMOVE_FRIEND_SQL, params);
+        if (jdbc.update(REMOVE_FRIEND_SQL, params) == 0) {
+            log.debug("Дружба не найдена");
+            return false;
+        }
         log.debug("Друг удалён");
+        return true;
     }
 
     @Override
@@ -161,6 +284,35 @@ public class JdbcUserRepository implements UserRepository {
         return jdbc.query(SELECT_FRIENDS_SQL, params, USER_ROW_MAPPER);
     }
 
+    @Override
+    public Map<Integer, Long> findFriendVersions(int userId) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("status", FriendshipStatus.CONFIRMED.name());
+        Map<Integer, Long> versions = new LinkedHashMap<>();
+        jdbc.query(SELECT_FRIEND_VERSIONS_SQL, params,
+                (RowCallbackHandler) rs -> versions.put(rs.getInt("id"), rs.getLong("row_version")));
+        return versions;
+    }
+
+    @Override
+    public Map<Integer, int[]> findAllFriendIds() {
+        MapSqlParameterSource params = new MapSqlParameterSource("status", FriendshipStatus.CONFIRMED.name());
+        Map<Integer, SortedIntSet> friendsByUser = new HashMap<>();
+        jdbc.query(SELECT_ALL_CONFIRMED_FRIEND_IDS_SQL, params, (RowCallbackHandler) rs ->
+                friendsByUser.computeIfAbsent(rs.getInt("user_id"), id -> new SortedIntSet())
+                        .add(rs.getInt("friend_id")));
+        Map<Integer, int[]> result = new HashMap<>(friendsByUser.size() * 2);
+        friendsByUser.forEach((userId, friends) -> result.put(userId, friends.toArray()));
+        return result;
+    }
+
+    @Override
+    public int[] findAllIds() {
+        List<Integer> ids = jdbc.getJdbcOperations().queryForList(SELECT_ALL_USER_IDS_SQL, Integer.class);
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
     @Override
     public List<User> getCommonFriends(int userId1, int userId2) {
         MapSqlParameterSource params = new MapSqlParameterSource()
@@ -170,9 +322,27 @@ public class JdbcUserRepository implements UserRepository {
         return jdbc.query(SELECT_COMMON_FRIENDS_SQL, params, USER_ROW_MAPPER);
     }
 
-    private Set<Integer> loadFriends(int userId) {
+    private void attachFriends(List<User> users, String sql, MapSqlParameterSource params) {
+        Map<Integer, User> usersById = new HashMap<>();
+        for (User user : users) {
+            user.setFriends(new IntHashSet());
+            usersById.put(user.getId(), user);
+        }
+        jdbc.query(sql, params, rs -> {
+            User user = usersById.get(rs.getInt("user_id"));
+            if (user != null) {
+                user.getFriends().add(rs.getInt("friend_id"));
+            }
+        });
+    }
+
+    private IntHashSet loadFriends(int userId) {
         MapSqlParameterSource params = new MapSqlParameterSource("userId", userId);
-        return new HashSet<>(jdbc.query(SELECT_USER_FRIENDS_SQL, params, (rs, rowNum) -> rs.getInt("friend_id")));
+        IntHashSet friends = new IntHashSet();
+        jdbc.query(SELECT_USER_FRIENDS_SQL, params, rs -> {
+            friends.add(rs.getInt("friend_id"));
+        });
+        return friends;
     }
 
 
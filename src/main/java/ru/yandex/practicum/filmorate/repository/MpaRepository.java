@@ -9,4 +9,6 @@ public interface MpaRepository {
     Optional<Mpa> findById(int id);
 
     List<Mpa> findAll();
-}
\ No newline at end of file
+
+    void refresh();
+}
@@ -1,9 +1,13 @@
 package ru.yandex.practicum.filmorate.repository;
 
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface UserRepository {
     User save(User user);
@@ -14,11 +18,29 @@ public interface UserRepository {
 
     List<User> findAll();
 
+    List<User> findByIds(List<Integer> ids);
+
+    Page<User> findAll(int afterId, int limit);
+
+    boolean existsById(int id);
+
+    Optional<Long> findVersion(int id);
+
+    boolean existsAll(Collection<Integer> ids);
+
+    void exportAll(Consumer<User> consumer);
+
     void addFriend(int userId, int friendId);
 
-    void removeFriend(int userId, int friendId);
+    boolean removeFriend(int userId, int friendId);
 
     List<User> getFriends(int userId);
 
+    Map<Integer, Long> findFriendVersions(int userId);
+
+    Map<Integer, int[]> findAllFriendIds();
+
+    int[] findAllIds();
+
     List<User> getCommonFriends(int userId1, int userId2);
 }
\ No newline at end of file
@@ -1,33 +1,88 @@
 package ru.yandex.practicum.filmorate.service;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.buffer.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.cache.CacheStats;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.index.SimilarFilmsIndex;
+import ru.yandex.practicum.filmorate.index.TrendingIndex;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikePair;
+import ru.yandex.practicum.filmorate.model.LikeStatus;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.repository.FilmRepository;
 import ru.yandex.practicum.filmorate.repository.GenreRepository;
 import ru.yandex.practicum.filmorate.repository.MpaRepository;
 import ru.yandex.practicum.filmorate.repository.UserRepository;
+import ru.yandex.practicum.filmorate.util.Transactions;
 
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 public class BaseFilmService implements FilmService {
+    public static final int MAX_BULK_SIZE = 10_000;
+    public static final int MAX_LIKE_BATCH_SIZE = 100_000;
+    private static final Pattern WINDOW_PATTERN = Pattern.compile("(\\d{1,4})([hd])");
+
     protected final FilmRepository filmRepository;
     protected final UserRepository userRepository;
     protected final MpaRepository mpaRepository;
     protected final GenreRepository genreRepository;
+    protected final PopularityLeaderboard leaderboard;
+    protected final FilmCache filmCache;
+    protected final LikeWriteBuffer likeBuffer;
+    protected final TrendingIndex trending;
+    protected final FilmSearchIndex searchIndex;
+    protected final FilmSuggestIndex suggestIndex;
+    protected final SimilarFilmsIndex similarIndex;
+    private final boolean inMemoryPopular;
+    private final boolean relyOnForeignKeys;
+    // Меняется при любом изменении, способном затронуть /films/popular; основа ETag этого ответа
+    private final AtomicLong popularRevision = new AtomicLong();
 
     public BaseFilmService(FilmRepository filmRepository, UserRepository userRepository,
-                          MpaRepository mpaRepository, GenreRepository genreRepository) {
+                          MpaRepository mpaRepository, GenreRepository genreRepository,
+                          PopularityLeaderboard leaderboard, FilmCache filmCache, LikeWriteBuffer likeBuffer,
+                          TrendingIndex trending, FilmSearchIndex searchIndex, FilmSuggestIndex suggestIndex,
+                          SimilarFilmsIndex similarIndex,
+                          @Value("${filmorate.popular.in-memory:true}") boolean inMemoryPopular,
+                          @Value("${filmorate.mutations.rely-on-foreign-keys:false}") boolean relyOnForeignKeys) {
         this.filmRepository = filmRepository;
         this.userRepository = userRepository;
         this.mpaRepository = mpaRepository;
         this.genreRepository = genreRepository;
+        this.leaderboard = leaderboard;
+        this.filmCache = filmCache;
+        this.likeBuffer = likeBuffer;
+        this.trending = trending;
+        this.searchIndex = searchIndex;
+        this.suggestIndex = suggestIndex;
+        this.similarIndex = similarIndex;
+        this.inMemoryPopular = inMemoryPopular;
+        this.relyOnForeignKeys = relyOnForeignKeys;
     }
 
     @Override
@@ -48,15 +103,57 @@ public class BaseFilmService implements FilmService {
             }
         }
 
-        return filmRepository.save(film);
+        Film saved = filmRepository.save(film);
+        Transactions.afterCommit(() -> {
+            leaderboard.index(saved);
+            searchIndex.index(saved);
+            suggestIndex.index(saved);
+            popularRevision.incrementAndGet();
+        });
+        filmCache.invalidate(saved.getId());
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public List<Film> createFilms(List<Film> films) {
+        if (films.isEmpty() || films.size() > MAX_BULK_SIZE) {
+            throw new ValidationException("Количество фильмов в пакете должно быть от 1 до " + MAX_BULK_SIZE);
+        }
+        Set<Integer> mpaIds = new HashSet<>();
+        Set<Integer> genreIds = new HashSet<>();
+        for (Film film : films) {
+            if (film.getMpaRating() == null) {
+                throw new ValidationException("MPA рейтинг обязателен");
+            }
+            mpaIds.add(film.getMpaRating().getId());
+            film.getGenres().forEach(genre -> genreIds.add(genre.getId()));
+        }
+        for (Integer mpaId : mpaIds) {
+            mpaRepository.findById(mpaId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "MPA рейтинг с id = " + mpaId + " не найден"));
+        }
+        if (!genreIds.isEmpty() && genreRepository.findByIds(List.copyOf(genreIds)).size() != genreIds.size()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Жанры не найдены");
+        }
+
+        List<Film> saved = filmRepository.saveAll(films);
+        Transactions.afterCommit(() -> {
+            saved.forEach(film -> {
+                leaderboard.index(film);
+                searchIndex.index(film);
+                suggestIndex.index(film);
+            });
+            popularRevision.incrementAndGet();
+        });
+        return saved;
     }
 
     @Override
     @Transactional
     public Film updateFilm(Film film) {
-        final Film f = filmRepository.findById(film.getId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
-                    "Фильм с id = " + film.getId() + " не найден"));
+        checkFilmExists(film.getId());
 
         final Mpa mpa = mpaRepository.findById(film.getMpaRating().getId())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
@@ -69,23 +166,33 @@ public class BaseFilmService implements FilmService {
             if (genreIds.size() != genres.size()) {
                 throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Жанры не найдены");
             }
-            f.setGenres(new LinkedHashSet<>(genres));
+            film.setGenres(new LinkedHashSet<>(genres));
         } else {
-            f.setGenres(new LinkedHashSet<>());
+            film.setGenres(new LinkedHashSet<>());
         }
+        film.setMpaRating(mpa);
 
-        f.setName(film.getName());
-        f.setDescription(film.getDescription());
-        f.setReleaseDate(film.getReleaseDate());
-        f.setDuration(film.getDuration());
-        f.setMpaRating(mpa);
-
-        return filmRepository.update(f);
+        Film updated = filmRepository.update(film);
+        Transactions.afterCommit(() -> {
+            leaderboard.index(updated);
+            searchIndex.index(updated);
+            suggestIndex.index(updated);
+            popularRevision.incrementAndGet();
+        });
+        filmCache.invalidate(updated.getId());
+        return updated;
     }
 
     @Override
     public Film getFilmById(int id) {
-        return filmRepository.findById(id)
+        return filmCache.get(id, filmRepository::findById)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Фильм с id = " + id + " не найден"));
+    }
+
+    @Override
+    public long getFilmVersion(int id) {
+        return filmCache.peek(id).map(Film::getVersion)
+                .or(() -> filmRepository.findVersion(id))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Фильм с id = " + id + " не найден"));
     }
 
@@ -94,30 +201,195 @@ public class BaseFilmService implements FilmService {
         return filmRepository.findAll();
     }
 
+    @Override
+    public Page<Film> getFilmsPage(int afterId, int limit) {
+        if (limit < 1 || limit > Page.MAX_LIMIT) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + Page.MAX_LIMIT);
+        }
+        return filmRepository.findAll(afterId, limit);
+    }
+
+    @Override
+    public void exportFilms(Consumer<Film> consumer) {
+        filmRepository.exportAll(consumer);
+    }
+
     @Override
     public void addLike(int filmId, int userId) {
-        if (filmRepository.findById(filmId).isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Фильм с id = " + filmId + " не найден");
+        if (likeBuffer.isEnabled()) {
+            applyBufferedLike(filmId, userId, true);
+            return;
         }
-        if (userRepository.findById(userId).isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Пользователь с id = " + userId + " не найден");
+        boolean added;
+        if (relyOnForeignKeys) {
+            try {
+                added = filmRepository.addLike(filmId, userId);
+            } catch (DataIntegrityViolationException e) {
+                checkFilmExists(filmId);
+                checkUserExists(userId);
+                throw e;
+            }
+        } else {
+            checkFilmExists(filmId);
+            checkUserExists(userId);
+            added = filmRepository.addLike(filmId, userId);
+        }
+        // Лайки не входят в кэшируемый агрегат (FetchPlan.DEFAULT), поэтому кэш фильмов тут не трогаем
+        if (added) {
+            leaderboard.increment(filmId);
+            trending.record(filmId, 1, LocalDateTime.now(), LocalDateTime.now());
+            similarIndex.recordLike(filmId, userId, true);
+            popularRevision.incrementAndGet();
         }
-        filmRepository.addLike(filmId, userId);
     }
 
     @Override
     public void removeLike(int filmId, int userId) {
-        if (filmRepository.findById(filmId).isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Фильм с id = " + filmId + " не найден");
+        if (likeBuffer.isEnabled()) {
+            applyBufferedLike(filmId, userId, false);
+            return;
         }
-        if (userRepository.findById(userId).isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Пользователь с id = " + userId + " не найден");
+        if (!relyOnForeignKeys) {
+            checkFilmExists(filmId);
+            checkUserExists(userId);
+        }
+        Optional<LocalDateTime> likedAt = filmRepository.removeLike(filmId, userId);
+        if (likedAt.isPresent()) {
+            leaderboard.decrement(filmId);
+            trending.record(filmId, -1, likedAt.get(), LocalDateTime.now());
+            similarIndex.recordLike(filmId, userId, false);
+            popularRevision.incrementAndGet();
+        } else if (relyOnForeignKeys) {
+            checkFilmExists(filmId);
+            checkUserExists(userId);
+        }
+    }
+
+    @Override
+    public List<LikeStatus> addLikes(List<LikePair> likes) {
+        if (likes.isEmpty() || likes.size() > MAX_LIKE_BATCH_SIZE) {
+            throw new ValidationException("Количество лайков в пакете должно быть от 1 до " + MAX_LIKE_BATCH_SIZE);
+        }
+        // С буфером пакет проходит через него же, иначе буферизованный лайк той же пары был бы учтён дважды
+        List<LikeStatus> statuses = likeBuffer.isEnabled()
+                ? likeBuffer.recordLikes(likes, filmRepository::checkLikes,
+                        pair -> filmRepository.hasLike(pair.getFilmId(), pair.getUserId()))
+                : filmRepository.addLikes(likes);
+        Map<Integer, Integer> deltas = new HashMap<>();
+        for (int i = 0; i < likes.size(); i++) {
+            if (statuses.get(i) == LikeStatus.ADDED) {
+                deltas.merge(likes.get(i).getFilmId(), 1, Integer::sum);
+                similarIndex.recordLike(likes.get(i).getFilmId(), likes.get(i).getUserId(), true);
+            }
+        }
+        if (!deltas.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            deltas.forEach((filmId, delta) -> {
+                leaderboard.adjust(filmId, delta);
+                trending.record(filmId, delta, now, now);
+            });
+            popularRevision.incrementAndGet();
         }
-        filmRepository.removeLike(filmId, userId);
+        return statuses;
     }
 
     @Override
-    public List<Film> getTopFilms(int count) {
-        return filmRepository.findMostPopular(count);
+    public List<Film> getTopFilms(int count, Integer genreId, Integer year) {
+        if (count < 1 || count > Page.MAX_LIMIT) {
+            throw new ValidationException("Параметр count должен быть от 1 до " + Page.MAX_LIMIT);
+        }
+        if (genreId != null) {
+            genreRepository.findById(genreId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Жанр с id = " + genreId + " не найден"));
+        }
+        if (!inMemoryPopular) {
+            return filmRepository.findMostPopular(count, genreId, year);
+        }
+        return filmCache.getAll(leaderboard.top(count, genreId, year), filmRepository::findByIds);
+    }
+
+    @Override
+    public List<Film> getTrendingFilms(String window, int count) {
+        if (count < 1 || count > Page.MAX_LIMIT) {
+            throw new ValidationException("Параметр count должен быть от 1 до " + Page.MAX_LIMIT);
+        }
+        Matcher matcher = WINDOW_PATTERN.matcher(window);
+        int hours = !matcher.matches() ? -1
+                : Integer.parseInt(matcher.group(1)) * (matcher.group(2).equals("d") ? 24 : 1);
+        if (!trending.supports(hours)) {
+            throw new ValidationException("Параметр window должен быть одним из окон (в часах): "
+                    + Arrays.toString(trending.windows()));
+        }
+        return filmCache.getAll(trending.top(hours, count, LocalDateTime.now()), filmRepository::findByIds);
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, int count) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Параметр q не должен быть пустым");
+        }
+        if (count < 1 || count > Page.MAX_LIMIT) {
+            throw new ValidationException("Параметр count должен быть от 1 до " + Page.MAX_LIMIT);
+        }
+        return filmCache.getAll(searchIndex.search(query, count), filmRepository::findByIds);
+    }
+
+    @Override
+    public List<Film> suggestFilms(String prefix, int count) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new ValidationException("Параметр prefix не должен быть пустым");
+        }
+        if (count < 1 || count > suggestIndex.maxCount()) {
+            throw new ValidationException("Параметр count должен быть от 1 до " + suggestIndex.maxCount());
+        }
+        return filmCache.getAll(suggestIndex.suggest(prefix, count), filmRepository::findByIds);
+    }
+
+    @Override
+    public List<Film> getSimilarFilms(int filmId, int count) {
+        if (count < 1 || count > similarIndex.maxCount()) {
+            throw new ValidationException("Параметр count должен быть от 1 до " + similarIndex.maxCount());
+        }
+        checkFilmExists(filmId);
+        return filmCache.getAll(similarIndex.similar(filmId, count), filmRepository::findByIds);
+    }
+
+    @Override
+    public long getPopularRevision() {
+        return popularRevision.get();
+    }
+
+    @Override
+    public CacheStats getCacheStats() {
+        return filmCache.stats();
+    }
+
+    // Рейтинг обновляется сразу, поэтому /films/popular видит лайки ещё до сброса буфера в БД
+    private void applyBufferedLike(int filmId, int userId, boolean liked) {
+        int delta = likeBuffer.record(filmId, userId, liked, () -> {
+            checkFilmExists(filmId);
+            checkUserExists(userId);
+            return filmRepository.hasLike(filmId, userId);
+        });
+        if (delta != 0) {
+            leaderboard.adjust(filmId, delta);
+            // время исходного лайка здесь неизвестно, поэтому отмена вычитается из текущего часа
+            trending.record(filmId, delta, LocalDateTime.now(), LocalDateTime.now());
+            similarIndex.recordLike(filmId, userId, liked);
+            popularRevision.incrementAndGet();
+        }
+    }
+
+    private void checkFilmExists(int filmId) {
+        if (!filmRepository.existsById(filmId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Фильм с id = " + filmId + " не найден");
+        }
+    }
+
+    private void checkUserExists(int userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Пользователь с id = " + userId + " не найден");
+        }
     }
 }
\ No newline at end of file
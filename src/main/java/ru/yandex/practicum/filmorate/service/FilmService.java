@@ -1,21 +1,48 @@
 package ru.yandex.practicum.filmorate.service;
 
+import ru.yandex.practicum.filmorate.cache.CacheStats;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikePair;
+import ru.yandex.practicum.filmorate.model.LikeStatus;
+import ru.yandex.practicum.filmorate.model.Page;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface FilmService {
     Film createFilm(Film film);
 
+    List<Film> createFilms(List<Film> films);
+
     Film updateFilm(Film film);
 
     Film getFilmById(int id);
 
+    long getFilmVersion(int id);
+
     List<Film> getAllFilms();
 
+    Page<Film> getFilmsPage(int afterId, int limit);
+
+    void exportFilms(Consumer<Film> consumer);
+
     void addLike(int filmId, int userId);
 
     void removeLike(int filmId, int userId);
 
-    List<Film> getTopFilms(int count);
+    List<LikeStatus> addLikes(List<LikePair> likes);
+
+    List<Film> getTopFilms(int count, Integer genreId, Integer year);
+
+    List<Film> getTrendingFilms(String window, int count);
+
+    List<Film> searchFilms(String query, int count);
+
+    List<Film> suggestFilms(String prefix, int count);
+
+    List<Film> getSimilarFilms(int filmId, int count);
+
+    long getPopularRevision();
+
+    CacheStats getCacheStats();
 }
\ No newline at end of file
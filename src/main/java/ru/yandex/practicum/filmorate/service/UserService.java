@@ -1,8 +1,12 @@
 package ru.yandex.practicum.filmorate.service;
 
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.OptionalInt;
+import java.util.function.Consumer;
 
 public interface UserService {
     User createUser(User user);
@@ -11,13 +15,29 @@ public interface UserService {
 
     User getUserById(int id);
 
+    long getUserVersion(int id);
+
     List<User> getAllUsers();
 
+    Page<User> getUsersPage(int afterId, int limit);
+
+    void exportUsers(Consumer<User> consumer);
+
     void addFriend(int userId, int friendId);
 
     void removeFriend(int userId, int friendId);
 
     List<User> getFriends(int userId);
 
+    long getFriendsVersion(int userId);
+
     List<User> getCommonFriends(int userId, int otherId);
+
+    List<User> getFriendsOfFriends(int userId, int limit);
+
+    OptionalInt getDegreesOfSeparation(int userId, int otherId, int maxDepth);
+
+    List<FriendRecommendation> getFriendRecommendations(int userId, int limit);
+
+    List<User> suggestUsers(String prefix, int count);
 }
\ No newline at end of file
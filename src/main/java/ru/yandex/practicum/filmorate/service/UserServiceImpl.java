@@ -1,30 +1,67 @@
 package ru.yandex.practicum.filmorate.service;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.UserSuggestIndex;
+import ru.yandex.practicum.filmorate.model.FriendRecommendation;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.repository.UserRepository;
+import ru.yandex.practicum.filmorate.util.Transactions;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.function.Consumer;
 
 @Service
 public class UserServiceImpl implements UserService {
+    private static final int MAX_SEPARATION_DEPTH = 6;
+
     private final UserRepository userRepository;
+    private final FriendGraph friendGraph;
+    private final UserSuggestIndex suggestIndex;
+    private final boolean relyOnForeignKeys;
+    private final boolean inMemoryFriends;
 
-    public UserServiceImpl(UserRepository userRepository) {
+    public UserServiceImpl(UserRepository userRepository, FriendGraph friendGraph, UserSuggestIndex suggestIndex,
+                           @Value("${filmorate.mutations.rely-on-foreign-keys:false}") boolean relyOnForeignKeys,
+                           @Value("${filmorate.friends.in-memory:true}") boolean inMemoryFriends) {
         this.userRepository = userRepository;
+        this.friendGraph = friendGraph;
+        this.suggestIndex = suggestIndex;
+        this.relyOnForeignKeys = relyOnForeignKeys;
+        this.inMemoryFriends = inMemoryFriends;
     }
 
     public User createUser(User user) {
         if (user.getName() == null || user.getName().isBlank()) {
             user.setName(user.getLogin());
         }
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        Transactions.afterCommit(() -> {
+            friendGraph.registerUser(saved.getId());
+            suggestIndex.index(saved);
+        });
+        return saved;
     }
 
     public User updateUser(User user) {
-        return userRepository.update(user);
+        User updated = userRepository.update(user);
+        Transactions.afterCommit(() -> suggestIndex.index(updated));
+        return updated;
     }
 
     public User getUserById(int id) {
@@ -32,39 +69,162 @@ public class UserServiceImpl implements UserService {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Пользователь с id = " + id + " не найден"));
     }
 
+    public long getUserVersion(int id) {
+        return userRepository.findVersion(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Пользователь с id = " + id + " не найден"));
+    }
+
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
 
+    public Page<User> getUsersPage(int afterId, int limit) {
+        if (limit < 1 || limit > Page.MAX_LIMIT) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + Page.MAX_LIMIT);
+        }
+        return userRepository.findAll(afterId, limit);
+    }
+
+    public void exportUsers(Consumer<User> consumer) {
+        userRepository.exportAll(consumer);
+    }
+
     public void addFriend(int userId, int friendId) {
         if (userId == friendId) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Пользователь не может добавить самого себя в друзья");
         }
-        checkUserExists(userId);
-        checkUserExists(friendId);
-        userRepository.addFriend(userId, friendId);
+        if (!relyOnForeignKeys) {
+            checkUsersExist(userId, friendId);
+            friendGraph.addFriend(userId, friendId, () -> userRepository.addFriend(userId, friendId));
+        } else {
+            try {
+                friendGraph.addFriend(userId, friendId, () -> userRepository.addFriend(userId, friendId));
+            } catch (DataIntegrityViolationException e) {
+                checkUsersExist(userId, friendId);
+                throw e;
+            }
+        }
     }
 
     public void removeFriend(int userId, int friendId) {
-        checkUserExists(userId);
-        checkUserExists(friendId);
-        userRepository.removeFriend(userId, friendId);
+        if (!relyOnForeignKeys) {
+            checkUsersExist(userId, friendId);
+        }
+        if (!friendGraph.removeFriend(userId, friendId, () -> userRepository.removeFriend(userId, friendId))
+                && relyOnForeignKeys) {
+            checkUsersExist(userId, friendId);
+        }
     }
 
     public List<User> getFriends(int userId) {
-        checkUserExists(userId);
-        return userRepository.getFriends(userId);
+        if (!inMemoryFriends) {
+            checkUserExists(userId);
+            return userRepository.getFriends(userId);
+        }
+        checkKnownUsers(userId);
+        return findUsers(friendGraph.friends(userId));
+    }
+
+    public long getFriendsVersion(int userId) {
+        Map<Integer, Long> versions = userRepository.findFriendVersions(userId);
+        if (versions.isEmpty()) {
+            checkUserExists(userId);
+        }
+        return fingerprint(versions);
     }
 
     public List<User> getCommonFriends(int userId, int otherId) {
-        checkUserExists(userId);
-        checkUserExists(otherId);
-        return userRepository.getCommonFriends(userId, otherId);
+        if (!inMemoryFriends) {
+            checkUsersExist(userId, otherId);
+            return userRepository.getCommonFriends(userId, otherId);
+        }
+        checkKnownUsers(userId, otherId);
+        return findUsers(friendGraph.commonFriends(userId, otherId));
+    }
+
+    public List<User> getFriendsOfFriends(int userId, int limit) {
+        if (limit < 1 || limit > Page.MAX_LIMIT) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + Page.MAX_LIMIT);
+        }
+        checkKnownUsers(userId);
+        int[] ids = friendGraph.friendsOfFriends(userId);
+        return findUsers(ids.length > limit ? Arrays.copyOf(ids, limit) : ids);
+    }
+
+    public OptionalInt getDegreesOfSeparation(int userId, int otherId, int maxDepth) {
+        if (maxDepth < 1 || maxDepth > MAX_SEPARATION_DEPTH) {
+            throw new ValidationException("Параметр maxDepth должен быть от 1 до " + MAX_SEPARATION_DEPTH);
+        }
+        checkKnownUsers(userId, otherId);
+        return friendGraph.degreesOfSeparation(userId, otherId, maxDepth);
+    }
+
+    public List<FriendRecommendation> getFriendRecommendations(int userId, int limit) {
+        if (limit < 1 || limit > Page.MAX_LIMIT) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + Page.MAX_LIMIT);
+        }
+        checkKnownUsers(userId);
+        FriendGraph.Recommendations recommendations = friendGraph.recommendations(userId, limit);
+        int[] ids = recommendations.userIds();
+        Map<Integer, User> usersById = new HashMap<>();
+        findUsers(ids).forEach(user -> usersById.put(user.getId(), user));
+        List<FriendRecommendation> result = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            User user = usersById.get(ids[i]);
+            if (user != null) {
+                result.add(new FriendRecommendation(user, recommendations.mutualCounts()[i]));
+            }
+        }
+        return result;
+    }
+
+    public List<User> suggestUsers(String prefix, int count) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new ValidationException("Параметр prefix не должен быть пустым");
+        }
+        if (count < 1 || count > suggestIndex.maxCount()) {
+            throw new ValidationException("Параметр count должен быть от 1 до " + suggestIndex.maxCount());
+        }
+        return userRepository.findByIds(suggestIndex.suggest(prefix, count));
+    }
+
+    private List<User> findUsers(int[] ids) {
+        return ids.length == 0 ? List.of() : userRepository.findByIds(Arrays.stream(ids).boxed().toList());
+    }
+
+    // Проверка по узлам графа, без обращения к БД
+    private void checkKnownUsers(int... userIds) {
+        for (int userId : userIds) {
+            if (!friendGraph.containsUser(userId)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Пользователь с id = " + userId + " не найден");
+            }
+        }
+    }
+
+    // Первые 8 байт SHA-256 от пар (id друга, версия): меняются при изменении состава друзей или их данных
+    private static long fingerprint(Map<Integer, Long> versions) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            versions.forEach((id, version) ->
+                    digest.update((id + ":" + version + ";").getBytes(StandardCharsets.US_ASCII)));
+            return ByteBuffer.wrap(digest.digest()).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
     }
 
     private void checkUserExists(int userId) {
-        if (userRepository.findById(userId).isEmpty()) {
+        if (!userRepository.existsById(userId)) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Пользователь с id = " + userId + " не найден");
         }
     }
+
+    private void checkUsersExist(int... userIds) {
+        if (userRepository.existsAll(Arrays.stream(userIds).boxed().toList())) {
+            return;
+        }
+        for (int userId : userIds) {
+            checkUserExists(userId);
+        }
+    }
 }
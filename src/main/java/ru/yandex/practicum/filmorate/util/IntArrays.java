@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+public final class IntArrays {
+
+    private IntArrays() {
+    }
+
+    // Пересечение двух отсортированных массивов без дублей. Короткий массив идёт по порядку,
+    // в длинном следующий элемент ищется галопом (шаги 1, 2, 4, ...) и двоичным поиском в найденном окне,
+    // поэтому при сильно разных размерах получается O(m log(n/m)) вместо O(m + n).
+    public static int[] intersect(int[] a, int[] b) {
+        int[] small = a.length <= b.length ? a : b;
+        int[] large = small == a ? b : a;
+        int[] result = new int[small.length];
+        int count = 0;
+        int from = 0;
+        for (int value : small) {
+            if (from >= large.length) {
+                break;
+            }
+            int step = 1;
+            int to = from;
+            while (to < large.length && large[to] < value) {
+                from = to + 1;
+                to += step;
+                step <<= 1;
+            }
+            int index = Arrays.binarySearch(large, from, Math.min(to + 1, large.length), value);
+            if (index >= 0) {
+                result[count++] = value;
+                from = index + 1;
+            } else {
+                from = -index - 1;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // Вставка в отсортированный массив без дублей; если значение уже есть, возвращается тот же массив
+    public static int[] insert(int[] sorted, int value) {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index >= 0) {
+            return sorted;
+        }
+        int position = -index - 1;
+        int[] result = new int[sorted.length + 1];
+        System.arraycopy(sorted, 0, result, 0, position);
+        result[position] = value;
+        System.arraycopy(sorted, position, result, position + 1, sorted.length - position);
+        return result;
+    }
+
+    // Удаление из отсортированного массива; если значения нет, возвращается тот же массив
+    public static int[] remove(int[] sorted, int value) {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index < 0) {
+            return sorted;
+        }
+        int[] result = new int[sorted.length - 1];
+        System.arraycopy(sorted, 0, result, 0, index);
+        System.arraycopy(sorted, index + 1, result, index, sorted.length - index - 1);
+        return result;
+    }
+}
@@ -0,0 +1,212 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+// Множество int с открытой адресацией (линейное пробирование) без упаковки в Integer.
+// Ноль означает пустую ячейку и хранится отдельным флагом; удаление сдвигает хвост кластера назад, без «надгробий».
+// В отличие от SortedIntSet поиск не зависит от размера, а порядок элементов не хранится: toArray сортирует копию
+public final class IntHashSet {
+    private static final int[] EMPTY = new int[0];
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] slots;
+    private int size;
+    private boolean hasZero;
+
+    public IntHashSet() {
+        this.slots = EMPTY;
+    }
+
+    private IntHashSet(int[] slots, int size, boolean hasZero) {
+        this.slots = slots;
+        this.size = size;
+        this.hasZero = hasZero;
+    }
+
+    public static IntHashSet of(int... values) {
+        IntHashSet set = new IntHashSet();
+        for (int value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    public boolean add(int value) {
+        if (value == 0) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            size++;
+            return true;
+        }
+        // заполнение держится не выше 2/3, чтобы кластеры оставались короткими
+        if (3 * (size + 1) > 2 * slots.length) {
+            resize(Math.max(MIN_CAPACITY, slots.length * 2));
+        }
+        int mask = slots.length - 1;
+        int i = index(value, mask);
+        while (slots[i] != 0) {
+            if (slots[i] == value) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        slots[i] = value;
+        size++;
+        return true;
+    }
+
+    public boolean remove(int value) {
+        if (value == 0) {
+            if (!hasZero) {
+                return false;
+            }
+            hasZero = false;
+            size--;
+            return true;
+        }
+        if (slots.length == 0) {
+            return false;
+        }
+        int mask = slots.length - 1;
+        int gap = index(value, mask);
+        while (slots[gap] != value) {
+            if (slots[gap] == 0) {
+                return false;
+            }
+            gap = (gap + 1) & mask;
+        }
+        // элементы кластера за удалённым переезжают в освободившуюся ячейку, если их цепочка через неё проходит
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            int current = slots[i];
+            if (current == 0) {
+                break;
+            }
+            if (((i - index(current, mask)) & mask) >= ((i - gap) & mask)) {
+                slots[gap] = current;
+                gap = i;
+            }
+        }
+        slots[gap] = 0;
+        size--;
+        return true;
+    }
+
+    public boolean contains(int value) {
+        if (value == 0) {
+            return hasZero;
+        }
+        if (slots.length == 0) {
+            return false;
+        }
+        int mask = slots.length - 1;
+        int i = index(value, mask);
+        while (slots[i] != 0) {
+            if (slots[i] == value) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Элементы по возрастанию
+    public int[] toArray() {
+        int[] result = new int[size];
+        int count = 0;
+        if (hasZero) {
+            result[count++] = 0;
+        }
+        for (int value : slots) {
+            if (value != 0) {
+                result[count++] = value;
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    public IntStream stream() {
+        return Arrays.stream(toArray());
+    }
+
+    public void forEach(IntConsumer action) {
+        if (hasZero) {
+            action.accept(0);
+        }
+        for (int value : slots) {
+            if (value != 0) {
+                action.accept(value);
+            }
+        }
+    }
+
+    public IntHashSet copy() {
+        return new IntHashSet(slots.clone(), size, hasZero);
+    }
+
+    private void resize(int capacity) {
+        int[] previous = slots;
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int value : previous) {
+            if (value != 0) {
+                int i = index(value, mask);
+                while (slots[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = value;
+            }
+        }
+    }
+
+    // Последовательные id иначе легли бы в соседние ячейки одним длинным кластером
+    private static int index(int value, int mask) {
+        int hash = value * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IntHashSet other) || size != other.size || hasZero != other.hasZero) {
+            return false;
+        }
+        for (int value : slots) {
+            if (value != 0 && !other.contains(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Не зависит от порядка ячеек, как у java.util.Set
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int value : slots) {
+            hash += value;
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+// Отбор k наибольших long-ключей min-кучей на массиве: O(n log k) без полной сортировки и без упаковки.
+// Ранжирующие признаки упаковываются в ключ так, чтобы больший ключ означал лучшую позицию
+public final class LongTopK {
+    private final long[] heap;
+    private int size;
+
+    public LongTopK(int capacity) {
+        this.heap = new long[capacity];
+    }
+
+    public void offer(long key) {
+        if (size < heap.length) {
+            heap[size] = key;
+            siftUp(size++);
+        } else if (size > 0 && key > heap[0]) {
+            heap[0] = key;
+            siftDown();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Наименьший ключ, который ещё нужно превзойти; пока куча не заполнена — Long.MIN_VALUE
+    public long threshold() {
+        return size < heap.length ? Long.MIN_VALUE : heap[0];
+    }
+
+    // Ключи по убыванию
+    public long[] toSortedArray() {
+        long[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted);
+        for (int i = 0, j = sorted.length - 1; i < j; i++, j--) {
+            long tmp = sorted[i];
+            sorted[i] = sorted[j];
+            sorted[j] = tmp;
+        }
+        return sorted;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= heap[index]) {
+                return;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown() {
+        int index = 0;
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heap[left] < heap[smallest]) {
+                smallest = left;
+            }
+            if (right < size && heap[right] < heap[smallest]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(smallest, index);
+            index = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+}
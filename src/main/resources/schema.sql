@@ -71,4 +71,33 @@ CREATE TABLE IF NOT EXISTS friendships (
 -- Индексы для ускорения поиска
 CREATE INDEX IF NOT EXISTS idx_likes_user ON film_likes(user_id);
 CREATE INDEX IF NOT EXISTS idx_friends_user ON friendships(user_id);
-CREATE INDEX IF NOT EXISTS idx_friends_friend ON friendships(friend_id);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_friends_friend ON friendships(friend_id);
+
+-- Однократные миграции данных: скрипт выполняется при каждом старте, а заполнение — только пока нет отметки
+CREATE TABLE IF NOT EXISTS schema_migrations (
+    name VARCHAR(100) PRIMARY KEY,
+    applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Материализованный счётчик лайков для /films/popular; дальше его ведёт приложение.
+-- Заполняется одним проходом GROUP BY по film_likes, после отметки источник пуст
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count INT NOT NULL DEFAULT 0;
+MERGE INTO films f
+USING (SELECT film_id, COUNT(*) AS likes FROM film_likes
+       WHERE NOT EXISTS (SELECT 1 FROM schema_migrations WHERE name = 'films.likes_count')
+       GROUP BY film_id) c
+ON f.id = c.film_id
+WHEN MATCHED AND f.likes_count <> c.likes THEN UPDATE SET likes_count = c.likes;
+MERGE INTO schema_migrations KEY (name) VALUES ('films.likes_count', CURRENT_TIMESTAMP);
+CREATE INDEX IF NOT EXISTS idx_films_likes_count ON films(likes_count DESC, id);
+
+-- Версии строк для ETag: увеличиваются при каждом обновлении фильма/пользователя
+ALTER TABLE films ADD COLUMN IF NOT EXISTS row_version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS row_version BIGINT NOT NULL DEFAULT 0;
+
+-- Окно трендов при старте читается по времени лайка
+CREATE INDEX IF NOT EXISTS idx_likes_liked_at ON film_likes(liked_at);
+
+-- Популярные фильмы по жанру и по году выпуска
+CREATE INDEX IF NOT EXISTS idx_film_genres_genre ON film_genres(genre_id, film_id);
+CREATE INDEX IF NOT EXISTS idx_films_release_date ON films(release_date);
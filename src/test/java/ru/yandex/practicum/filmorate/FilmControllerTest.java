@@ -0,0 +1,268 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DisplayName("FilmController")
+class FilmControllerTest {
+
+    private final MockMvc mockMvc;
+    private final ObjectMapper objectMapper;
+
+    @Test
+    @DisplayName("should reject the whole bulk import when an MPA or genre id is unknown")
+    public void should_reject_bulk_import_with_unknown_references() throws Exception {
+        // given
+        int filmsBefore = filmCount();
+        String unknownMpa = "[" + film("Первый", 1, 1) + ", " + film("Второй", 999, 1) + "]";
+        String unknownGenre = "[" + film("Первый", 1, 1) + ", " + film("Второй", 1, 999) + "]";
+
+        // when
+        mockMvc.perform(post("/films/bulk").contentType(MediaType.APPLICATION_JSON).content(unknownMpa))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.detail").value(containsString("999")));
+        mockMvc.perform(post("/films/bulk").contentType(MediaType.APPLICATION_JSON).content(unknownGenre))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.detail").value("Жанры не найдены"));
+
+        // then
+        assertThat(filmCount()).isEqualTo(filmsBefore);
+    }
+
+    @Test
+    @DisplayName("should reject a non-positive count of popular films")
+    public void should_reject_invalid_popular_count() throws Exception {
+        mockMvc.perform(get("/films/popular").param("count", "-1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/popular").param("count", "0").param("genreId", "1").param("year", "1999"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("should reject a non-positive count of trending films")
+    public void should_reject_invalid_trending_count() throws Exception {
+        mockMvc.perform(get("/films/trending").param("count", "-1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/trending").param("window", "7d").param("count", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/trending").param("count", "5"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("should report invalid batch likes as per-item failures")
+    public void should_report_invalid_batch_likes_as_failures() throws Exception {
+        String body = """
+                [
+                  {"filmId": 1005, "userId": 1002},
+                  {"filmId": 1001, "userId": 1001},
+                  {"filmId": 1005, "userId": 1002},
+                  null,
+                  {"filmId": 1002},
+                  {"filmId": 9999, "userId": 1001},
+                  {"filmId": 1002, "userId": 9999}
+                ]
+                """;
+
+        mockMvc.perform(post("/films/likes/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.added").value(1))
+                .andExpect(jsonPath("$.alreadyExisting").value(2))
+                .andExpect(jsonPath("$.failures", hasSize(4)))
+                .andExpect(jsonPath("$.failures[0].index").value(3))
+                .andExpect(jsonPath("$.failures[0].filmId").value(nullValue()))
+                .andExpect(jsonPath("$.failures[1].index").value(4))
+                .andExpect(jsonPath("$.failures[1].filmId").value(1002))
+                .andExpect(jsonPath("$.failures[1].userId").value(nullValue()))
+                .andExpect(jsonPath("$.failures[2].index").value(5))
+                .andExpect(jsonPath("$.failures[3].index").value(6));
+    }
+
+    @Test
+    @DisplayName("should walk all films page by page until there is no next cursor")
+    public void should_walk_films_by_cursor() throws Exception {
+        // given
+        List<Integer> all = ids(mockMvc.perform(get("/films")).andReturn().getResponse().getContentAsString());
+
+        // when
+        List<Integer> walked = new ArrayList<>();
+        int pages = 0;
+        String cursor = "0";
+        while (cursor != null) {
+            MvcResult page = mockMvc.perform(get("/films").param("after", cursor).param("limit", "2"))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            List<Integer> items = ids(page.getResponse().getContentAsString());
+            assertThat(items).hasSizeBetween(1, 2);
+            walked.addAll(items);
+            pages++;
+            cursor = page.getResponse().getHeader("X-Next-Cursor");
+            if (cursor != null) {
+                // курсор — id последнего фильма страницы, следующая страница начинается строго после него
+                assertThat(Integer.parseInt(cursor)).isEqualTo(items.getLast());
+            }
+        }
+
+        // then
+        assertThat(walked).doesNotHaveDuplicates().isSorted().containsExactlyInAnyOrderElementsOf(all);
+        assertThat(pages).isEqualTo((all.size() + 1) / 2);
+    }
+
+    @Test
+    @DisplayName("should answer 304 for an unchanged film and change the ETag after an update")
+    public void should_revalidate_film_by_etag() throws Exception {
+        // given
+        int id = createFilm(film("Условный запрос", 1, 1));
+        String etag = etag(get("/films/{id}", id));
+
+        // when
+        mockMvc.perform(get("/films/{id}", id).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        ObjectNode update = (ObjectNode) objectMapper.readTree(film("Условный запрос 2", 1, 1));
+        update.put("id", id);
+        mockMvc.perform(put("/films").contentType(MediaType.APPLICATION_JSON).content(update.toString()))
+                .andExpect(status().isOk());
+
+        // then
+        String changed = mockMvc.perform(get("/films/{id}", id).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Условный запрос 2"))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        assertThat(changed).isNotNull().isNotEqualTo(etag);
+    }
+
+    @Test
+    @DisplayName("should answer 304 for unchanged popular films and change the ETag after a like")
+    public void should_revalidate_popular_films_by_etag() throws Exception {
+        // given
+        int id = createFilm(film("Популярный по ETag", 1, 1));
+        String etag = etag(get("/films/popular").param("count", "5"));
+
+        // when
+        mockMvc.perform(get("/films/popular").param("count", "5").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(put("/films/{id}/like/{userId}", id, 1001))
+                .andExpect(status().isOk());
+
+        // then
+        String changed = mockMvc.perform(get("/films/popular").param("count", "5")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        assertThat(changed).isNotNull().isNotEqualTo(etag);
+        assertThat(etag(get("/films/popular").param("count", "6"))).isNotEqualTo(changed);
+    }
+
+    private int filmCount() throws Exception {
+        String body = mockMvc.perform(get("/films")).andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).size();
+    }
+
+    @Test
+    @DisplayName("should export every film as one JSON object per line")
+    public void should_export_films_as_ndjson() throws Exception {
+        // given
+        Map<Integer, JsonNode> expected = new HashMap<>();
+        for (JsonNode node : objectMapper.readTree(mockMvc.perform(get("/films")).andReturn()
+                .getResponse().getContentAsString(StandardCharsets.UTF_8))) {
+            expected.put(node.get("id").asInt(), node);
+        }
+
+        // when
+        MvcResult started = mockMvc.perform(get("/films/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+
+        // then
+        assertThat(body).endsWith("\n");
+        Map<Integer, JsonNode> exported = new HashMap<>();
+        for (String line : body.split("\n")) {
+            JsonNode node = objectMapper.readTree(line);
+            assertThat(node.isObject()).isTrue();
+            assertThat(exported.put(node.get("id").asInt(), node)).isNull();
+        }
+        assertThat(exported).isEqualTo(expected);
+    }
+
+    private int createFilm(String body) throws Exception {
+        String created = mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+        return objectMapper.readTree(created).get("id").asInt();
+    }
+
+    private String etag(MockHttpServletRequestBuilder request) throws Exception {
+        String etag = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotBlank();
+        return etag;
+    }
+
+    private List<Integer> ids(String body) throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (JsonNode node : objectMapper.readTree(body)) {
+            ids.add(node.get("id").asInt());
+        }
+        return ids;
+    }
+
+    private static String film(String name, int mpaId, int genreId) {
+        return """
+                {"name": "%s", "description": "Описание", "releaseDate": "2001-01-01", "duration": 100,
+                 "mpa": {"id": %d}, "genres": [{"id": %d}]}
+                """.formatted(name, mpaId, genreId);
+    }
+}
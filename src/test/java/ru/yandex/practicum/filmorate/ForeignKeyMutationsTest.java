@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "filmorate.mutations.rely-on-foreign-keys=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DisplayName("Mutations relying on foreign keys")
+class ForeignKeyMutationsTest {
+
+    private final MockMvc mockMvc;
+
+    @Test
+    @DisplayName("should return 404 for a like of a missing film or by a missing user")
+    public void should_return_not_found_for_missing_like_ids() throws Exception {
+        mockMvc.perform(put("/films/9999/like/1001"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.detail").value(containsString("9999")));
+        mockMvc.perform(put("/films/1001/like/9999"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.detail").value(containsString("9999")));
+        mockMvc.perform(delete("/films/9999/like/1001"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("should return 404 for a friendship with a missing user")
+    public void should_return_not_found_for_missing_friend() throws Exception {
+        mockMvc.perform(put("/users/1001/friends/9999"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.detail").value(containsString("9999")));
+        mockMvc.perform(put("/users/9999/friends/1001"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/users/1001/friends/9999"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("should treat a repeated like and friendship as success")
+    public void should_accept_duplicates() throws Exception {
+        mockMvc.perform(put("/films/1001/like/1001")).andExpect(status().isOk());
+        mockMvc.perform(put("/films/1001/like/1001")).andExpect(status().isOk());
+        mockMvc.perform(put("/users/1003/friends/1004")).andExpect(status().isOk());
+        mockMvc.perform(put("/users/1003/friends/1004")).andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.mapper.FilmResultSetExtractor;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.repository.JdbcFilmRepository;
+import ru.yandex.practicum.filmorate.repository.JdbcGenreRepository;
+import ru.yandex.practicum.filmorate.repository.JdbcMpaRepository;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({FilmResultSetExtractor.class})
+@ActiveProfiles("test")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DisplayName("JdbcGenreRepository and JdbcMpaRepository")
+class JdbcDictionaryRepositoryTest {
+
+    private static final Pattern DICTIONARY_TABLES = Pattern.compile("\\b(genres|mpa_ratings)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final FilmResultSetExtractor filmResultSetExtractor;
+
+    @Test
+    @DisplayName("should serve the old genres until refresh and the new ones after it")
+    public void should_reload_genres_on_refresh() {
+        JdbcGenreRepository genreRepository = new JdbcGenreRepository(jdbcTemplate);
+        genreRepository.refresh();
+        jdbcTemplate.update("UPDATE genres SET name = 'Нуар' WHERE id = 1");
+        jdbcTemplate.update("INSERT INTO genres (id, name) VALUES (7, 'Вестерн')");
+
+        assertThat(genreRepository.findById(1)).get().extracting(Genre::getName).isNotEqualTo("Нуар");
+        assertThat(genreRepository.findById(7)).isEmpty();
+
+        genreRepository.refresh();
+
+        assertThat(genreRepository.findById(1)).get().extracting(Genre::getName).isEqualTo("Нуар");
+        assertThat(genreRepository.findByIds(List.of(7, 1, 7))).extracting(Genre::getId).containsExactly(1, 7);
+        assertThat(genreRepository.findAll()).extracting(Genre::getId).containsExactly(1, 2, 3, 4, 5, 6, 7);
+    }
+
+    @Test
+    @DisplayName("should serve the old MPA ratings until refresh and the new ones after it")
+    public void should_reload_mpa_on_refresh() {
+        JdbcMpaRepository mpaRepository = new JdbcMpaRepository(jdbcTemplate);
+        mpaRepository.refresh();
+        jdbcTemplate.update("UPDATE mpa_ratings SET description = 'Обновлено' WHERE id = 2");
+        jdbcTemplate.update("INSERT INTO mpa_ratings (id, name) VALUES (6, 'X')");
+
+        assertThat(mpaRepository.findById(2)).get().extracting(Mpa::getDescription).isNotEqualTo("Обновлено");
+        assertThat(mpaRepository.findById(6)).isEmpty();
+
+        mpaRepository.refresh();
+
+        assertThat(mpaRepository.findById(2)).get().extracting(Mpa::getDescription).isEqualTo("Обновлено");
+        assertThat(mpaRepository.findById(6)).get().extracting(Mpa::getName).isEqualTo("X");
+        assertThat(mpaRepository.findAll()).extracting(Mpa::getId).containsExactly(1, 2, 3, 4, 5, 6);
+    }
+
+    @Test
+    @DisplayName("should write films with cached MPA and genres without querying the dictionary tables")
+    public void should_write_film_without_reading_dictionaries() {
+        List<String> statements = new ArrayList<>();
+        DataSource recording = recordingDataSource(statements);
+        JdbcGenreRepository genreRepository = new JdbcGenreRepository(new JdbcTemplate(recording));
+        JdbcMpaRepository mpaRepository = new JdbcMpaRepository(new JdbcTemplate(recording));
+        JdbcFilmRepository filmRepository = new JdbcFilmRepository(new NamedParameterJdbcTemplate(recording),
+                filmResultSetExtractor);
+        genreRepository.refresh();
+        mpaRepository.refresh();
+        assertThat(statements).hasSize(2);
+        statements.clear();
+
+        // проверки ссылок — как в BaseFilmService.createFilm/updateFilm
+        Film film = film(mpaRepository.findById(3).orElseThrow(), genreRepository.findByIds(List.of(2, 5)));
+        filmRepository.save(film);
+        film.setMpaRating(mpaRepository.findById(4).orElseThrow());
+        film.setGenres(new LinkedHashSet<>(genreRepository.findByIds(List.of(5, 6))));
+        filmRepository.update(film);
+        filmRepository.saveAll(List.of(film(mpaRepository.findById(1).orElseThrow(), genreRepository.findAll())));
+
+        assertThat(statements).isNotEmpty();
+        assertThat(statements).noneMatch(sql -> DICTIONARY_TABLES.matcher(sql).find());
+    }
+
+    private static Film film(Mpa mpa, List<Genre> genres) {
+        Film film = new Film();
+        film.setName("Справочники");
+        film.setDescription("Фильм со ссылками из кэша справочников");
+        film.setReleaseDate(LocalDate.of(2001, 1, 1));
+        film.setDuration(100);
+        film.setMpaRating(mpa);
+        film.setGenres(new LinkedHashSet<>(genres));
+        return film;
+    }
+
+    // Соединение тестовой транзакции, чтобы записи откатились; запоминается текст каждого подготовленного запроса
+    private DataSource recordingDataSource(List<String> statements) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        Connection recording = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("prepare")) {
+                        statements.add((String) args[0]);
+                    } else if (method.getName().equals("createStatement")) {
+                        statements.add(method.getName());
+                    }
+                    return invoke(connection, method, args);
+                });
+        return new SingleConnectionDataSource(recording, true);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
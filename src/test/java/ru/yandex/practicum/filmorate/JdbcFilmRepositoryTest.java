@@ -0,0 +1,378 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.mapper.FilmResultSetExtractor;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikePair;
+import ru.yandex.practicum.filmorate.model.LikeStatus;
+import ru.yandex.practicum.filmorate.repository.FetchPlan;
+import ru.yandex.practicum.filmorate.repository.JdbcFilmRepository;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@Import({JdbcFilmRepository.class, FilmResultSetExtractor.class})
+@ActiveProfiles("test")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DisplayName("JdbcFilmRepository")
+class JdbcFilmRepositoryTest {
+
+    private final JdbcFilmRepository filmRepository;
+    private static final int BATCH_FILMS = 1_500;
+
+    private final NamedParameterJdbcOperations jdbc;
+    private final FilmResultSetExtractor filmResultSetExtractor;
+    private final DataSource dataSource;
+
+    @Test
+    @DisplayName("should add a like once and report repeats")
+    public void should_add_like_once() {
+        assertThat(filmRepository.addLike(1005, 1001)).isTrue();
+        assertThat(filmRepository.addLike(1005, 1001)).isFalse();
+
+        assertThat(likesCount(1005)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should return a status for every pair of a batch")
+    public void should_add_batch_likes_with_per_item_statuses() {
+        List<LikeStatus> statuses = filmRepository.addLikes(Arrays.asList(
+                new LikePair(1005, 1002),
+                new LikePair(1001, 1001),
+                new LikePair(1005, 1002),
+                null,
+                new LikePair(1002, null),
+                new LikePair(9999, 1001),
+                new LikePair(1002, 9999)));
+
+        assertThat(statuses).containsExactly(LikeStatus.ADDED, LikeStatus.ALREADY_EXISTS,
+                LikeStatus.ALREADY_EXISTS, LikeStatus.INVALID, LikeStatus.INVALID,
+                LikeStatus.FILM_NOT_FOUND, LikeStatus.USER_NOT_FOUND);
+        assertThat(likesCount(1005)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should report batch like statuses without writing")
+    public void should_check_batch_likes_without_writing() {
+        int before = likesCount(1005);
+
+        List<LikeStatus> statuses = filmRepository.checkLikes(Arrays.asList(
+                new LikePair(1005, 1002),
+                new LikePair(1001, 1001),
+                null,
+                new LikePair(9999, 1001),
+                new LikePair(1002, 9999)));
+
+        assertThat(statuses).containsExactly(LikeStatus.ADDED, LikeStatus.ALREADY_EXISTS,
+                LikeStatus.INVALID, LikeStatus.FILM_NOT_FOUND, LikeStatus.USER_NOT_FOUND);
+        assertThat(filmRepository.hasLike(1005, 1002)).isFalse();
+        assertThat(likesCount(1005)).isEqualTo(before);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("should count concurrent likes of the same pair once")
+    public void should_add_concurrent_likes_of_same_pair_once() throws Exception {
+        // given
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        try {
+            // when
+            for (int i = 0; i < threads * 4; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return filmRepository.addLike(1003, 1004);
+                }));
+            }
+            start.countDown();
+            int added = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(30, TimeUnit.SECONDS)) {
+                    added++;
+                }
+            }
+
+            // then
+            assertThat(added).isEqualTo(1);
+            assertThat(likesCount(1003)).isEqualTo(3);
+        } finally {
+            executor.shutdownNow();
+            filmRepository.removeLike(1003, 1004);
+        }
+    }
+
+    @Test
+    @DisplayName("should keep genre rows untouched when the genre set is unchanged")
+    public void should_keep_unchanged_genres() {
+        Map<Integer, Long> before = genreRows(1001);
+
+        filmRepository.update(withGenres(1001, 6, 4));
+
+        assertThat(genreRows(1001)).isEqualTo(before);
+    }
+
+    @Test
+    @DisplayName("should insert only the added genre")
+    public void should_add_genre() {
+        Map<Integer, Long> before = genreRows(1001);
+
+        filmRepository.update(withGenres(1001, 4, 6, 1));
+
+        Map<Integer, Long> after = genreRows(1001);
+        assertThat(after).containsOnlyKeys(1, 4, 6).containsAllEntriesOf(before);
+    }
+
+    @Test
+    @DisplayName("should delete only the removed genre")
+    public void should_remove_genre() {
+        Map<Integer, Long> before = genreRows(1001);
+
+        filmRepository.update(withGenres(1001, 4));
+
+        assertThat(genreRows(1001)).containsExactly(Map.entry(4, before.get(4)));
+    }
+
+    @Test
+    @DisplayName("should delete all genre rows when the genres are cleared")
+    public void should_clear_genres() {
+        Map<Integer, Long> other = genreRows(1002);
+
+        filmRepository.update(withGenres(1001));
+
+        assertThat(genreRows(1001)).isEmpty();
+        assertThat(genreRows(1002)).isEqualTo(other);
+        assertThat(filmRepository.findById(1001).orElseThrow().getGenres()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should return updated genres ordered by id")
+    public void should_return_genres_ordered_by_id() {
+        Film updated = filmRepository.update(withGenres(1001, 6, 1, 4));
+
+        assertThat(updated.getGenres()).extracting(Genre::getId).containsExactly(6, 1, 4);
+        assertThat(filmRepository.findById(1001).orElseThrow().getGenres())
+                .extracting(Genre::getId)
+                .containsExactly(1, 4, 6);
+    }
+
+    @Test
+    @DisplayName("should declare which associations each fetch plan loads")
+    public void should_declare_fetch_plans() {
+        assertThat(List.of(FetchPlan.CORE, FetchPlan.DEFAULT, FetchPlan.FULL))
+                .extracting(FetchPlan::loadsMpa, FetchPlan::loadsGenres, FetchPlan::loadsLikes)
+                .containsExactly(tuple(false, false, false), tuple(true, true, false), tuple(true, true, true));
+    }
+
+    @Test
+    @DisplayName("should stitch genres and likes of more than one IN-list chunk")
+    public void should_stitch_associations_across_chunks() {
+        List<Integer> ids = saveFilmsWithGenresAndLikes(BATCH_FILMS);
+
+        List<Film> films = filmRepository.findByIds(ids, FetchPlan.FULL);
+
+        assertThat(films).extracting(Film::getId).containsExactlyElementsOf(ids);
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            assertThat(film.getMpaRating().getName()).isNotNull();
+            assertThat(film.getGenres()).extracting(Genre::getId).containsExactly(batchGenreIds(i));
+            assertThat(film.getGenres()).extracting(Genre::getName).doesNotContainNull();
+            assertThat(film.getLikes().toArray()).containsExactlyInAnyOrder(batchLikerIds(i));
+        }
+    }
+
+    @Test
+    @DisplayName("should load only the associations of the fetch plan")
+    public void should_load_only_planned_associations() {
+        List<Integer> ids = saveFilmsWithGenresAndLikes(BATCH_FILMS);
+        int last = ids.size() - 1;
+
+        Film core = filmRepository.findByIds(ids, FetchPlan.CORE).get(last);
+        Film defaults = filmRepository.findByIds(ids, FetchPlan.DEFAULT).get(last);
+
+        assertThat(core.getMpaRating().getName()).isNull();
+        assertThat(core.getGenres()).isEmpty();
+        assertThat(core.getLikes().isEmpty()).isTrue();
+        assertThat(defaults.getMpaRating().getName()).isNotNull();
+        assertThat(defaults.getGenres()).extracting(Genre::getId).containsExactly(batchGenreIds(last));
+        assertThat(defaults.getLikes().isEmpty()).isTrue();
+    }
+
+    @Test
+    @DisplayName("should load associations with statements per chunk regardless of the number of likes")
+    public void should_load_associations_with_fixed_number_of_statements() {
+        List<Integer> ids = saveFilmsWithGenresAndLikes(BATCH_FILMS);
+        int last = ids.size() - 1;
+        AtomicInteger statements = new AtomicInteger();
+        JdbcFilmRepository countingRepository = new JdbcFilmRepository(
+                new NamedParameterJdbcTemplate(countingDataSource(statements)), filmResultSetExtractor);
+
+        // 1500 фильмов — два куска IN-списка: фильмы, затем по запросу жанров и лайков на кусок
+        countingRepository.findByIds(ids, FetchPlan.CORE);
+        assertThat(statements.getAndSet(0)).isEqualTo(1);
+        countingRepository.findByIds(ids, FetchPlan.DEFAULT);
+        assertThat(statements.getAndSet(0)).isEqualTo(3);
+        countingRepository.findByIds(ids, FetchPlan.FULL);
+        assertThat(statements.getAndSet(0)).isEqualTo(5);
+
+        List<Integer> extraUsers = saveUsers(20);
+        jdbc.batchUpdate("INSERT INTO film_likes (film_id, user_id) VALUES (:filmId, :userId)",
+                ids.stream()
+                        .flatMap(filmId -> extraUsers.stream().map(userId -> new MapSqlParameterSource()
+                                .addValue("filmId", filmId)
+                                .addValue("userId", userId)))
+                        .toArray(MapSqlParameterSource[]::new));
+
+        List<Film> films = countingRepository.findByIds(ids, FetchPlan.FULL);
+        assertThat(statements.get()).isEqualTo(5);
+        assertThat(films.getLast().getLikes().size()).isEqualTo(batchLikerIds(last).length + 20);
+    }
+
+    // id задаются явно: последовательность начинается с 1 и дошла бы до id тестовых данных
+    private List<Integer> saveFilmsWithGenresAndLikes(int count) {
+        int firstId = nextId("films");
+        List<Integer> ids = new ArrayList<>();
+        List<MapSqlParameterSource> films = new ArrayList<>();
+        List<MapSqlParameterSource> genres = new ArrayList<>();
+        List<MapSqlParameterSource> likes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int filmId = firstId + i;
+            ids.add(filmId);
+            films.add(new MapSqlParameterSource()
+                    .addValue("id", filmId)
+                    .addValue("name", "Пакет " + i)
+                    .addValue("mpaId", i % 5 + 1));
+            for (int genreId : batchGenreIds(i)) {
+                genres.add(new MapSqlParameterSource()
+                        .addValue("filmId", filmId)
+                        .addValue("genreId", genreId));
+            }
+            for (int userId : batchLikerIds(i)) {
+                likes.add(new MapSqlParameterSource()
+                        .addValue("filmId", filmId)
+                        .addValue("userId", userId));
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO films (id, name, description, release_date, duration, mpa_rating_id) "
+                        + "VALUES (:id, :name, 'Фильм для проверки загрузки связей', DATE '2000-01-01', 90, :mpaId)",
+                films.toArray(MapSqlParameterSource[]::new));
+        jdbc.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (:filmId, :genreId)",
+                genres.toArray(MapSqlParameterSource[]::new));
+        jdbc.batchUpdate("INSERT INTO film_likes (film_id, user_id) VALUES (:filmId, :userId)",
+                likes.toArray(MapSqlParameterSource[]::new));
+        return ids;
+    }
+
+    // Два соседних жанра из шести, по возрастанию id
+    private static Integer[] batchGenreIds(int index) {
+        int first = index % 6 + 1;
+        int second = (index + 1) % 6 + 1;
+        return new Integer[]{Math.min(first, second), Math.max(first, second)};
+    }
+
+    // От одного до четырёх пользователей из тестовых данных
+    private static int[] batchLikerIds(int index) {
+        return IntStream.rangeClosed(1001, 1001 + index % 4).toArray();
+    }
+
+    private List<Integer> saveUsers(int count) {
+        int firstId = nextId("users");
+        List<Integer> ids = IntStream.range(firstId, firstId + count).boxed().toList();
+        jdbc.batchUpdate("INSERT INTO users (id, email, login, name, birthday) "
+                        + "VALUES (:id, :email, :login, :login, DATE '1990-01-01')",
+                ids.stream()
+                        .map(id -> new MapSqlParameterSource()
+                                .addValue("id", id)
+                                .addValue("email", "liker" + id + "@example.com")
+                                .addValue("login", "liker" + id))
+                        .toArray(MapSqlParameterSource[]::new));
+        return ids;
+    }
+
+    private int nextId(String table) {
+        return jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table,
+                new MapSqlParameterSource(), Integer.class);
+    }
+
+    // Соединение тестовой транзакции, чтобы запросы видели вставленные в ней фильмы
+    private DataSource countingDataSource(AtomicInteger statements) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        Connection counting = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("prepare") || method.getName().equals("createStatement")) {
+                        statements.incrementAndGet();
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        return new SingleConnectionDataSource(counting, true);
+    }
+
+    private Film withGenres(int filmId, int... genreIds) {
+        Film film = filmRepository.findById(filmId).orElseThrow();
+        Set<Genre> genres = new LinkedHashSet<>();
+        for (int genreId : genreIds) {
+            Genre genre = new Genre();
+            genre.setId(genreId);
+            genres.add(genre);
+        }
+        film.setGenres(genres);
+        return film;
+    }
+
+    // _ROWID_ меняется, если строку удалили и вставили заново, поэтому по нему видно, какие строки переписаны
+    private Map<Integer, Long> genreRows(int filmId) {
+        Map<Integer, Long> rows = new HashMap<>();
+        jdbc.query("SELECT genre_id, _ROWID_ AS row_id FROM film_genres WHERE film_id = :filmId",
+                new MapSqlParameterSource("filmId", filmId),
+                (RowCallbackHandler) rs -> rows.put(rs.getInt("genre_id"), rs.getLong("row_id")));
+        return rows;
+    }
+
+    private int likesCount(int filmId) {
+        return jdbc.queryForObject("SELECT likes_count FROM films WHERE id = :id",
+                new MapSqlParameterSource("id", filmId), Integer.class);
+    }
+}
@@ -7,13 +7,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.repository.JdbcUserRepository;
+import ru.yandex.practicum.filmorate.util.IntArrays;
 
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -26,6 +37,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 class JdbcUserRepositoryTest {
 
     private final JdbcUserRepository userRepository;
+    private final DataSource dataSource;
 
     @Test
     @DisplayName("should find user by id")
@@ -44,6 +56,15 @@ class JdbcUserRepositoryTest {
                 });
     }
 
+    @Test
+    @DisplayName("should check user existence by primary key")
+    public void should_check_user_existence() {
+        assertThat(userRepository.existsById(1001)).isTrue();
+        assertThat(userRepository.existsById(9999)).isFalse();
+        assertThat(userRepository.existsAll(List.of(1001, 1002, 1002))).isTrue();
+        assertThat(userRepository.existsAll(List.of(1001, 9999))).isFalse();
+    }
+
     @Test
     @DisplayName("should save user")
     public void should_save_user() {
@@ -90,6 +111,37 @@ class JdbcUserRepositoryTest {
                 .contains("testuser1", "testuser2", "testuser3", "admin");
     }
 
+    @Test
+    @DisplayName("should load friends of all users with a fixed number of statements")
+    public void should_load_all_users_with_friends_without_n_plus_one() {
+        AtomicInteger statements = new AtomicInteger();
+        JdbcUserRepository countingRepository = new JdbcUserRepository(
+                new NamedParameterJdbcTemplate(countingDataSource(statements)));
+
+        List<User> allUsers = countingRepository.findAll();
+
+        assertThat(statements.get()).isEqualTo(2);
+        assertThat(allUsers)
+                .filteredOn(user -> user.getId() == 1001)
+                .singleElement()
+                .satisfies(user -> assertThat(user.getFriends().toArray()).containsExactly(1002, 1003));
+    }
+
+    @Test
+    @DisplayName("should load friends of a page of users with a fixed number of statements")
+    public void should_load_users_page_without_n_plus_one() {
+        AtomicInteger statements = new AtomicInteger();
+        JdbcUserRepository countingRepository = new JdbcUserRepository(
+                new NamedParameterJdbcTemplate(countingDataSource(statements)));
+
+        Page<User> page = countingRepository.findAll(1000, 3);
+
+        assertThat(statements.get()).isEqualTo(2);
+        assertThat(page.getItems()).extracting(User::getId).containsExactly(1001, 1002, 1003);
+        assertThat(page.getNextCursor()).isEqualTo(1003);
+        assertThat(page.getItems().getFirst().getFriends().toArray()).containsExactly(1002, 1003);
+    }
+
     @Test
     @DisplayName("should add and get friends")
     public void should_add_and_get_friends() {
@@ -151,4 +203,69 @@ class JdbcUserRepositoryTest {
                 .extracting(User::getId)
                 .contains(1003);
     }
+
+    @Test
+    @DisplayName("should find common friends by intersecting sorted friend ids")
+    public void should_intersect_friend_ids() {
+        Map<Integer, int[]> friendIds = userRepository.findAllFriendIds();
+        int[] user1Friends = friendIds.get(1001);
+        int[] user2Friends = friendIds.get(1002);
+
+        int[] common = IntArrays.intersect(user1Friends, user2Friends);
+
+        assertThat(user1Friends).isSorted();
+        assertThat(userRepository.findByIds(Arrays.stream(common).boxed().toList()))
+                .extracting(User::getId)
+                .containsExactlyInAnyOrderElementsOf(userRepository.getCommonFriends(1001, 1002).stream()
+                        .map(User::getId)
+                        .toList());
+    }
+
+    @Test
+    public void should_load_all_confirmed_friend_ids() {
+        Map<Integer, int[]> friendIds = userRepository.findAllFriendIds();
+
+        assertThat(friendIds.get(1001)).isSorted().containsExactlyInAnyOrder(friendIdsOf(1001));
+        assertThat(friendIds.get(1002)).isSorted().containsExactlyInAnyOrder(friendIdsOf(1002));
+        assertThat(userRepository.findAllIds()).isSorted().contains(1001, 1002, 1003);
+    }
+
+    private int[] friendIdsOf(int userId) {
+        return userRepository.getFriends(userId).stream()
+                .mapToInt(User::getId)
+                .toArray();
+    }
+
+    private DataSource countingDataSource(AtomicInteger statements) {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+                (dsProxy, dsMethod, dsArgs) -> {
+                    // собственная идентичность, чтобы не получить соединение тестовой транзакции
+                    if (dsMethod.getName().equals("equals")) {
+                        return dsProxy == dsArgs[0];
+                    }
+                    if (dsMethod.getName().equals("hashCode")) {
+                        return System.identityHashCode(dsProxy);
+                    }
+                    Object result = invoke(dataSource, dsMethod, dsArgs);
+                    if (!(result instanceof Connection connection)) {
+                        return result;
+                    }
+                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                            (proxy, method, args) -> {
+                                if (method.getName().startsWith("prepare")
+                                        || method.getName().equals("createStatement")) {
+                                    statements.incrementAndGet();
+                                }
+                                return invoke(connection, method, args);
+                            });
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
 }
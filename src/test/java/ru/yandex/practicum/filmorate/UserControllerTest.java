@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DisplayName("UserController")
+class UserControllerTest {
+
+    private final MockMvc mockMvc;
+    private final ObjectMapper objectMapper;
+
+    @Test
+    @DisplayName("should walk all users page by page until there is no next cursor")
+    public void should_walk_users_by_cursor() throws Exception {
+        // given
+        List<Integer> all = ids(mockMvc.perform(get("/users")).andReturn().getResponse().getContentAsString());
+
+        // when
+        List<Integer> walked = new ArrayList<>();
+        int pages = 0;
+        String cursor = "0";
+        while (cursor != null) {
+            MvcResult page = mockMvc.perform(get("/users").param("after", cursor).param("limit", "2"))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            List<Integer> items = ids(page.getResponse().getContentAsString());
+            assertThat(items).hasSizeBetween(1, 2);
+            walked.addAll(items);
+            pages++;
+            cursor = page.getResponse().getHeader("X-Next-Cursor");
+            if (cursor != null) {
+                assertThat(Integer.parseInt(cursor)).isEqualTo(items.getLast());
+            }
+        }
+
+        // then
+        assertThat(walked).doesNotHaveDuplicates().isSorted().containsExactlyInAnyOrderElementsOf(all);
+        assertThat(pages).isEqualTo((all.size() + 1) / 2);
+    }
+
+    @Test
+    @DisplayName("should export every user as one JSON object per line")
+    public void should_export_users_as_ndjson() throws Exception {
+        // given
+        Map<Integer, JsonNode> expected = new HashMap<>();
+        for (JsonNode node : objectMapper.readTree(mockMvc.perform(get("/users")).andReturn()
+                .getResponse().getContentAsString(StandardCharsets.UTF_8))) {
+            expected.put(node.get("id").asInt(), node);
+        }
+
+        // when
+        MvcResult started = mockMvc.perform(get("/users/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+
+        // then
+        assertThat(body).endsWith("\n");
+        Map<Integer, JsonNode> exported = new HashMap<>();
+        for (String line : body.split("\n")) {
+            JsonNode node = objectMapper.readTree(line);
+            assertThat(node.isObject()).isTrue();
+            assertThat(exported.put(node.get("id").asInt(), node)).isNull();
+        }
+        assertThat(exported).isEqualTo(expected);
+    }
+
+    @Test
+    @DisplayName("should answer 304 for unchanged friends and change the ETag after adding or removing a friend")
+    public void should_revalidate_friends_by_etag() throws Exception {
+        // given
+        int userId = createUser("etag_user");
+        int friendId = createUser("etag_friend");
+        String empty = etag(userId);
+
+        // when
+        mockMvc.perform(get("/users/{id}/friends", userId).header(HttpHeaders.IF_NONE_MATCH, empty))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", userId, friendId))
+                .andExpect(status().isOk());
+        String withFriend = mockMvc.perform(get("/users/{id}/friends", userId)
+                        .header(HttpHeaders.IF_NONE_MATCH, empty))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id").value(contains(friendId)))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/users/{id}/friends", userId).header(HttpHeaders.IF_NONE_MATCH, withFriend))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(delete("/users/{id}/friends/{friendId}", userId, friendId))
+                .andExpect(status().isOk());
+
+        // then
+        assertThat(withFriend).isNotNull().isNotEqualTo(empty);
+        mockMvc.perform(get("/users/{id}/friends", userId).header(HttpHeaders.IF_NONE_MATCH, withFriend))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    private int createUser(String login) throws Exception {
+        String body = """
+                {"email": "%s@example.com", "login": "%s", "birthday": "1990-01-01"}
+                """.formatted(login, login);
+        String created = mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+        return objectMapper.readTree(created).get("id").asInt();
+    }
+
+    private String etag(int userId) throws Exception {
+        String etag = mockMvc.perform(get("/users/{id}/friends", userId))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotBlank();
+        return etag;
+    }
+
+    private List<Integer> ids(String body) throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (JsonNode node : objectMapper.readTree(body)) {
+            ids.add(node.get("id").asInt());
+        }
+        return ids;
+    }
+}
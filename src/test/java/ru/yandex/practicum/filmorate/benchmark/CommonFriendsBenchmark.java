@@ -0,0 +1,122 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.JdbcUserRepository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Общие друзья двух пользователей: SQL self-join по friendships против пересечения списков FriendGraph
+// с догрузкой найденных пользователей одним запросом, как в UserServiceImpl.getCommonFriends.
+// Запуск: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.args=CommonFriendsBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommonFriendsBenchmark {
+
+    private static final int USER_ID = 1;
+    private static final int OTHER_ID = 2;
+    // у остальных пользователей тоже есть друзья, чтобы self-join шёл по заполненной таблице
+    private static final int BACKGROUND_FRIENDS = 20;
+
+    // Друзей у каждого из двух пользователей; общих — половина
+    @Param({"100", "2000"})
+    private int friends;
+
+    private HikariDataSource dataSource;
+    private JdbcUserRepository userRepository;
+    private FriendGraph friendGraph;
+
+    @Setup
+    public void setUp() {
+        // Пул соединений, как в приложении: H2 кэширует разобранные запросы в сессии, а без пула
+        // каждая выборка по IN-списку из тысячи параметров разбиралась бы заново
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        int users = 2 + friends * 3 / 2;
+        List<Object[]> userRows = new ArrayList<>(users);
+        for (int id = 1; id <= users; id++) {
+            userRows.add(new Object[]{id, "user" + id + "@example.com", "user" + id, "User " + id,
+                    Date.valueOf(LocalDate.of(1990, 1, 1))});
+        }
+        jdbc.batchUpdate("INSERT INTO users (id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)", userRows);
+
+        List<Object[]> friendships = new ArrayList<>();
+        for (int i = 0; i < friends; i++) {
+            friendships.add(friendship(USER_ID, 3 + i));
+            friendships.add(friendship(OTHER_ID, 3 + friends / 2 + i));
+        }
+        Random random = new Random(42);
+        for (int id = 3; id <= users; id++) {
+            int userId = id;
+            random.ints(3, users + 1).filter(friendId -> friendId != userId).distinct().limit(BACKGROUND_FRIENDS)
+                    .forEach(friendId -> friendships.add(friendship(userId, friendId)));
+        }
+        jdbc.batchUpdate("INSERT INTO friendships (user_id, friend_id, status) VALUES (?, ?, ?)", friendships);
+
+        userRepository = new JdbcUserRepository(new NamedParameterJdbcTemplate(dataSource));
+        friendGraph = new FriendGraph(userRepository);
+        friendGraph.rebuild();
+        int common = friendGraph.commonFriends(USER_ID, OTHER_ID).length;
+        if (common != friends / 2 || userRepository.getCommonFriends(USER_ID, OTHER_ID).size() != common) {
+            throw new IllegalStateException("Неверные тестовые данные: общих друзей " + common);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        new JdbcTemplate(dataSource).execute("SHUTDOWN");
+        dataSource.close();
+    }
+
+    @Benchmark
+    public List<User> sqlSelfJoin() {
+        return userRepository.getCommonFriends(USER_ID, OTHER_ID);
+    }
+
+    @Benchmark
+    public List<User> graphIntersectionWithHydration() {
+        int[] ids = friendGraph.commonFriends(USER_ID, OTHER_ID);
+        return ids.length == 0 ? List.of() : userRepository.findByIds(Arrays.stream(ids).boxed().toList());
+    }
+
+    @Benchmark
+    public int[] graphIntersection() {
+        return friendGraph.commonFriends(USER_ID, OTHER_ID);
+    }
+
+    private static Object[] friendship(int userId, int friendId) {
+        return new Object[]{userId, friendId, FriendshipStatus.CONFIRMED.name()};
+    }
+}
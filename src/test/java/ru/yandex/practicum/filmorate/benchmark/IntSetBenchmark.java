@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Проверка «лайкнул ли пользователь фильм» на множестве лайков одного фильма.
+// Запуск: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.args=IntSetBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IntSetBenchmark {
+
+    private static final int PROBES = 1024;
+
+    @Param({"100", "10000", "100000"})
+    private int likes;
+
+    private Set<Integer> hashSet;
+    private SortedIntSet sortedIntSet;
+    private IntHashSet intHashSet;
+    private int[] probes;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int[] userIds = likedUserIds(likes, random);
+        hashSet = new HashSet<>();
+        intHashSet = new IntHashSet();
+        for (int userId : userIds) {
+            hashSet.add(userId);
+            intHashSet.add(userId);
+        }
+        sortedIntSet = SortedIntSet.of(userIds);
+        // половина проверок попадает в множество, половина — случайные id того же диапазона
+        probes = new int[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = i % 2 == 0 ? userIds[random.nextInt(userIds.length)] : random.nextInt(likes * 4);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public int hashSetContains() {
+        int hits = 0;
+        for (int userId : probes) {
+            if (hashSet.contains(userId)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public int sortedIntSetContains() {
+        int hits = 0;
+        for (int userId : probes) {
+            if (sortedIntSet.contains(userId)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public int intHashSetContains() {
+        int hits = 0;
+        for (int userId : probes) {
+            if (intHashSet.contains(userId)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    // Различные id пользователей из диапазона, вчетверо большего числа лайков
+    static int[] likedUserIds(int likes, Random random) {
+        return random.ints(1, likes * 4).distinct().limit(likes).toArray();
+    }
+}
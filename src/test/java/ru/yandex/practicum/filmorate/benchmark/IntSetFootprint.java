@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jol.info.GraphLayout;
+import ru.yandex.practicum.filmorate.util.IntHashSet;
+import ru.yandex.practicum.filmorate.util.SortedIntSet;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+// Память, которую занимает множество лайков одного фильма, вместе со всеми достижимыми объектами.
+// Запуск: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=ru.yandex.practicum.filmorate.benchmark.IntSetFootprint
+public final class IntSetFootprint {
+
+    private IntSetFootprint() {
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("%10s %18s %14s %14s%n", "likes", "HashSet<Integer>", "SortedIntSet", "IntHashSet");
+        for (int likes : new int[]{100, 10_000, 100_000}) {
+            int[] userIds = IntSetBenchmark.likedUserIds(likes, new Random(42));
+            Set<Integer> hashSet = new HashSet<>();
+            IntHashSet intHashSet = new IntHashSet();
+            for (int userId : userIds) {
+                hashSet.add(userId);
+                intHashSet.add(userId);
+            }
+            System.out.printf("%10d %18d %14d %14d%n", likes,
+                    GraphLayout.parseInstance(hashSet).totalSize(),
+                    GraphLayout.parseInstance(SortedIntSet.of(userIds)).totalSize(),
+                    GraphLayout.parseInstance(intHashSet).totalSize());
+        }
+    }
+}
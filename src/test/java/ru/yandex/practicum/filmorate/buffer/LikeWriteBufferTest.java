@@ -0,0 +1,195 @@
+package ru.yandex.practicum.filmorate.buffer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.index.SimilarFilmsIndex;
+import ru.yandex.practicum.filmorate.index.TrendingIndex;
+import ru.yandex.practicum.filmorate.model.LikePair;
+import ru.yandex.practicum.filmorate.model.LikeStatus;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LikeWriteBufferTest {
+
+    @Mock
+    private FilmRepository filmRepository;
+
+    @Mock
+    private PopularityLeaderboard leaderboard;
+
+    @Mock
+    private TrendingIndex trending;
+
+    @Mock
+    private SimilarFilmsIndex similarIndex;
+
+    @TempDir
+    private Path tempDir;
+
+    private LikeWriteBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new LikeWriteBuffer(filmRepository, leaderboard, trending, similarIndex, true, 100,
+                tempDir.resolve("likes.journal").toString());
+    }
+
+    @Test
+    void shouldCancelLikeFollowedByUnlike() {
+        // when
+        int liked = buffer.record(1, 2, true, () -> false);
+        int unliked = buffer.record(1, 2, false, () -> false);
+        buffer.flush();
+
+        // then
+        assertThat(liked).isEqualTo(1);
+        assertThat(unliked).isEqualTo(-1);
+        verify(filmRepository, never()).addLikes(any());
+        verify(filmRepository, never()).removeLikes(any());
+        assertThat(buffer.pendingCount()).isZero();
+    }
+
+    @Test
+    void shouldCoalesceRepeatedLikesIntoOneWrite() {
+        // when
+        buffer.record(1, 2, true, () -> false);
+        int repeated = buffer.record(1, 2, true, () -> false);
+        buffer.flush();
+
+        // then
+        assertThat(repeated).isZero();
+        verify(filmRepository).addLikes(List.of(new LikePair(1, 2)));
+        assertThat(buffer.pendingCount()).isZero();
+    }
+
+    @Test
+    void shouldRereadPersistedStateWhenFlushRacesWithRead() {
+        // given
+        AtomicInteger reads = new AtomicInteger();
+
+        // when
+        int delta = buffer.record(1, 2, true, () -> {
+            if (reads.incrementAndGet() == 1) {
+                // параллельный запрос успел поставить и сбросить тот же лайк после чтения БД
+                buffer.record(1, 2, true, () -> false);
+                buffer.flush();
+                return false;
+            }
+            return true;
+        });
+
+        // then
+        assertThat(reads).hasValue(2);
+        assertThat(delta).isZero();
+    }
+
+    @Test
+    void shouldNotCountBatchLikeOfAlreadyBufferedPair() {
+        // given
+        int single = buffer.record(1, 2, true, () -> false);
+        List<LikePair> batch = List.of(new LikePair(1, 2), new LikePair(1, 3), new LikePair(1, 3), new LikePair(9, 3));
+
+        // when
+        List<LikeStatus> statuses = buffer.recordLikes(batch,
+                pairs -> List.of(LikeStatus.ADDED, LikeStatus.ADDED, LikeStatus.ADDED, LikeStatus.FILM_NOT_FOUND),
+                pair -> false);
+        buffer.flush();
+
+        // then
+        assertThat(single).isEqualTo(1);
+        assertThat(statuses).containsExactly(
+                LikeStatus.ALREADY_EXISTS, LikeStatus.ADDED, LikeStatus.ALREADY_EXISTS, LikeStatus.FILM_NOT_FOUND);
+        verify(filmRepository).addLikes(argThat(pairs -> pairs.size() == 2
+                && pairs.containsAll(List.of(new LikePair(1, 2), new LikePair(1, 3)))));
+    }
+
+    @Test
+    void shouldRereadBatchLikeWhenFlushRacesWithCheck() {
+        // when
+        List<LikeStatus> statuses = buffer.recordLikes(List.of(new LikePair(1, 2)), pairs -> {
+            // параллельный одиночный лайк той же пары поставлен и сброшен после пакетного чтения БД
+            buffer.record(1, 2, true, () -> false);
+            buffer.flush();
+            return List.of(LikeStatus.ADDED);
+        }, pair -> true);
+        buffer.flush();
+
+        // then
+        assertThat(statuses).containsExactly(LikeStatus.ALREADY_EXISTS);
+        verify(filmRepository).addLikes(List.of(new LikePair(1, 2)));
+        assertThat(buffer.pendingCount()).isZero();
+    }
+
+    @Test
+    void shouldRebaseIntentChangedDuringFlush() {
+        // given
+        buffer.record(1, 2, true, () -> false);
+        when(filmRepository.addLikes(any())).thenAnswer(invocation -> {
+            buffer.record(1, 2, false, () -> false);
+            return List.of();
+        });
+
+        // when
+        buffer.flush();
+
+        // then
+        assertThat(buffer.pendingCount()).isEqualTo(1);
+        buffer.flush();
+        verify(filmRepository).removeLikes(List.of(new LikePair(1, 2)));
+    }
+
+    @Test
+    void shouldJournalUnflushedLikesOnShutdown() throws Exception {
+        // given
+        buffer.record(1, 2, true, () -> false);
+        when(filmRepository.addLikes(any())).thenThrow(new IllegalStateException("БД недоступна"));
+
+        // when
+        buffer.shutdown();
+
+        // then
+        Path journal = tempDir.resolve("likes.journal");
+        assertThat(Files.readAllLines(journal)).containsExactly("1;2;true");
+    }
+
+    @Test
+    void shouldReplayJournalIntoAllLikeIndexes() throws Exception {
+        // given
+        Files.write(tempDir.resolve("likes.journal"), List.of("1;2;true", "1;3;true", "4;5;false"));
+        when(filmRepository.addLikes(any())).thenReturn(List.of(LikeStatus.ADDED, LikeStatus.ALREADY_EXISTS));
+        when(filmRepository.removeLikes(any())).thenReturn(List.of(true));
+
+        // when
+        buffer.replayJournal();
+
+        // then
+        verify(leaderboard).increment(1);
+        verify(leaderboard).decrement(4);
+        verify(trending).record(eq(1), eq(1), any(), any());
+        verify(trending).record(eq(4), eq(-1), any(), any());
+        verify(similarIndex).recordLike(1, 2, true);
+        verify(similarIndex).recordLike(4, 5, false);
+        // лайк, уже записанный в БД, индексы повторно не получают
+        verifyNoMoreInteractions(leaderboard, trending, similarIndex);
+        assertThat(tempDir.resolve("likes.journal")).doesNotExist();
+    }
+}
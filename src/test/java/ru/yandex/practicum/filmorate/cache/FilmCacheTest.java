@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmCacheTest {
+
+    @Test
+    void shouldServeRepeatedReadsFromCache() {
+        // given
+        FilmCache cache = new FilmCache(10);
+        AtomicInteger loads = new AtomicInteger();
+
+        // when
+        cache.get(1, id -> {
+            loads.incrementAndGet();
+            return Optional.of(film(id));
+        });
+        Optional<Film> second = cache.get(1, id -> {
+            loads.incrementAndGet();
+            return Optional.of(film(id));
+        });
+
+        // then
+        assertThat(second).map(Film::getName).contains("film1");
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats().getHits()).isEqualTo(1);
+        assertThat(cache.stats().getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsed() {
+        // given
+        FilmCache cache = new FilmCache(2);
+        cache.getAll(List.of(1, 2), ids -> ids.stream().map(FilmCacheTest::film).toList());
+        cache.get(1, id -> Optional.empty());
+
+        // when
+        cache.get(3, id -> Optional.of(film(id)));
+        List<Film> cached = cache.getAll(List.of(1, 2, 3), ids -> List.of());
+
+        // then
+        assertThat(cached).extracting(Film::getId).containsExactly(1, 3);
+        assertThat(cache.stats().getEvictions()).isEqualTo(1);
+        assertThat(cache.stats().getSize()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotCacheFilmLoadedBeforeInvalidation() {
+        // given
+        FilmCache cache = new FilmCache(10);
+
+        // when
+        cache.get(1, id -> {
+            cache.invalidate(id);
+            return Optional.of(film(id));
+        });
+
+        // then
+        assertThat(cache.stats().getSize()).isZero();
+    }
+
+    @Test
+    void shouldCacheFilmWhenOtherFilmIsInvalidatedDuringLoad() {
+        // given
+        FilmCache cache = new FilmCache(10);
+
+        // when
+        cache.get(1, id -> {
+            cache.invalidate(2);
+            return Optional.of(film(id));
+        });
+
+        // then
+        assertThat(cache.peek(1)).isPresent();
+    }
+
+    @Test
+    void shouldCountEachInvalidationOnce() {
+        // given
+        FilmCache cache = new FilmCache(10);
+
+        // when
+        cache.invalidate(1);
+        cache.invalidate(2);
+        cache.clear();
+        cache.invalidate(1);
+
+        // then
+        assertThat(cache.stats().getInvalidations()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldReturnCopies() {
+        // given
+        FilmCache cache = new FilmCache(10);
+        cache.get(1, id -> Optional.of(film(id)));
+
+        // when
+        cache.get(1, id -> Optional.empty()).orElseThrow().setName("changed");
+
+        // then
+        assertThat(cache.get(1, id -> Optional.empty())).map(Film::getName).contains("film1");
+    }
+
+    private static Film film(int id) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName("film" + id);
+        return film;
+    }
+}
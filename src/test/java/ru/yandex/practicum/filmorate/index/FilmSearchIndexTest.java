@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FilmSearchIndexTest {
+
+    @Mock
+    private FilmRepository filmRepository;
+
+    private FilmSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        when(filmRepository.findLikesCounts()).thenReturn(Map.of(1, 5, 2, 1, 3, 9, 4, 0));
+        doAnswer(invocation -> {
+            Consumer<Film> consumer = invocation.getArgument(0);
+            consumer.accept(film(1, "Ёлки", "Новогодняя комедия"));
+            consumer.accept(film(2, "Ирония судьбы", "Новогодняя история, комедия о встрече"));
+            consumer.accept(film(3, "The Matrix", "Neo meets the Matrix"));
+            consumer.accept(film(4, "Елки-палки", null));
+            return null;
+        }).when(filmRepository).exportSearchTexts(any());
+        PopularityLeaderboard leaderboard = new PopularityLeaderboard(filmRepository);
+        leaderboard.rebuild();
+        searchIndex = new FilmSearchIndex(filmRepository, leaderboard);
+        searchIndex.rebuild();
+    }
+
+    @Test
+    void shouldFoldCaseAndYoWhenTokenizing() {
+        assertThat(FilmSearchIndex.tokenize("Ёлки-Палки, THE matrix: 2 части"))
+                .containsExactly("елки", "палки", "the", "matrix", "части");
+    }
+
+    @Test
+    void shouldRankByMatchedTermsThenLikes() {
+        assertThat(searchIndex.search("елки", 10)).containsExactly(1, 4);
+        assertThat(searchIndex.search("новогодняя комедия", 10)).containsExactly(1, 2);
+        assertThat(searchIndex.search("комедия о встрече", 10)).containsExactly(2, 1);
+        assertThat(searchIndex.search("MATRIX елки", 10)).containsExactly(3, 1, 4);
+        assertThat(searchIndex.search("MATRIX елки", 2)).containsExactly(3, 1);
+        assertThat(searchIndex.search("неизвестное", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldFindNothingWhenQueryHasNoTerms() {
+        assertThat(searchIndex.search("!", 10)).isEmpty();
+        assertThat(searchIndex.search("a", 10)).isEmpty();
+        assertThat(searchIndex.search("  ", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldReplaceTermsOnReindex() {
+        // when
+        searchIndex.index(film(4, "Матрица", "Перезагрузка"));
+        searchIndex.index(film(5, "Елки 2", ""));
+
+        // then
+        assertThat(searchIndex.search("елки", 10)).containsExactly(1, 5);
+        assertThat(searchIndex.search("матрица", 10)).containsExactly(4);
+    }
+
+    private static Film film(int id, String name, String description) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName(name);
+        film.setDescription(description);
+        return film;
+    }
+}
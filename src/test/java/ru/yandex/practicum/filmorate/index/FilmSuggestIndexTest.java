@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FilmSuggestIndexTest {
+
+    @Mock
+    private FilmRepository filmRepository;
+
+    private PopularityLeaderboard leaderboard;
+    private FilmSuggestIndex suggestIndex;
+
+    @BeforeEach
+    void setUp() {
+        when(filmRepository.findLikesCounts()).thenReturn(Map.of(1, 5, 2, 1, 3, 9, 4, 0, 5, 3));
+        doAnswer(invocation -> {
+            Consumer<Film> consumer = invocation.getArgument(0);
+            consumer.accept(film(1, "Ёлки"));
+            consumer.accept(film(2, "Ёлки 2"));
+            consumer.accept(film(3, "Еда"));
+            consumer.accept(film(4, "Матрица"));
+            consumer.accept(film(5, "Матрица: перезагрузка"));
+            return null;
+        }).when(filmRepository).exportSearchTexts(any());
+        leaderboard = new PopularityLeaderboard(filmRepository);
+        leaderboard.rebuild();
+        suggestIndex = new FilmSuggestIndex(filmRepository, leaderboard, 2);
+        suggestIndex.rebuild();
+    }
+
+    @Test
+    void shouldSuggestMostLikedCompletionsOfPrefix() {
+        assertThat(suggestIndex.suggest("е", 2)).containsExactly(3, 1);
+        assertThat(suggestIndex.suggest("ЁЛ", 2)).containsExactly(1, 2);
+        assertThat(suggestIndex.suggest("елки ", 2)).containsExactly(2);
+        assertThat(suggestIndex.suggest("матрица", 1)).containsExactly(5);
+        assertThat(suggestIndex.suggest("мак", 2)).isEmpty();
+    }
+
+    @Test
+    void shouldFollowLikesAndTitleChanges() {
+        // given
+        for (int i = 0; i < 5; i++) {
+            leaderboard.increment(2);
+        }
+        leaderboard.decrement(3);
+        leaderboard.decrement(3);
+        leaderboard.decrement(3);
+        leaderboard.decrement(3);
+
+        // when
+        suggestIndex.index(film(4, "Елка"));
+
+        // then
+        assertThat(suggestIndex.suggest("е", 2)).containsExactly(2, 1);
+        assertThat(suggestIndex.suggest("ел", 2)).containsExactly(2, 1);
+        assertThat(suggestIndex.suggest("елка", 2)).containsExactly(4);
+        assertThat(suggestIndex.suggest("м", 2)).containsExactly(5);
+    }
+
+    private static Film film(int id, String name) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName(name);
+        return film;
+    }
+}
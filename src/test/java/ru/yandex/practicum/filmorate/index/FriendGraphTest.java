@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.yandex.practicum.filmorate.repository.UserRepository;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FriendGraphTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private FriendGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.findAllFriendIds()).thenReturn(Map.of(
+                1, new int[]{2, 3},
+                2, new int[]{4},
+                3, new int[]{4, 5},
+                4, new int[]{6}));
+        when(userRepository.findAllIds()).thenReturn(new int[]{1, 2, 3, 4, 5, 6, 7});
+        graph = new FriendGraph(userRepository);
+        graph.rebuild();
+    }
+
+    @Test
+    void shouldFindFriendsOfFriends() {
+        assertThat(graph.friendsOfFriends(1)).containsExactly(4, 5);
+        assertThat(graph.friendsOfFriends(7)).isEmpty();
+    }
+
+    @Test
+    void shouldFindDegreesOfSeparationWithinDepth() {
+        assertThat(graph.degreesOfSeparation(1, 1, 3)).hasValue(0);
+        assertThat(graph.degreesOfSeparation(1, 3, 3)).hasValue(1);
+        assertThat(graph.degreesOfSeparation(1, 6, 3)).hasValue(3);
+        assertThat(graph.degreesOfSeparation(1, 6, 2)).isEmpty();
+        assertThat(graph.degreesOfSeparation(6, 1, 6)).isEmpty();
+    }
+
+    @Test
+    void shouldRankRecommendationsByMutualFriends() {
+        // given
+        graph.addFriend(1, 7, () -> { });
+        graph.addFriend(7, 5, () -> { });
+        graph.addFriend(7, 6, () -> { });
+
+        // when
+        FriendGraph.Recommendations top = graph.recommendations(1, 10);
+        FriendGraph.Recommendations first = graph.recommendations(1, 1);
+
+        // then
+        assertThat(top.userIds()).containsExactly(4, 5, 6);
+        assertThat(top.mutualCounts()).containsExactly(2, 2, 1);
+        assertThat(first.userIds()).containsExactly(4);
+    }
+
+    @Test
+    void shouldRecomputeRecommendationsWhenFriendOfUserChanges() {
+        // given
+        assertThat(graph.recommendations(1, 10).userIds()).containsExactly(4, 5);
+
+        // when
+        graph.addFriend(2, 6, () -> { });
+        graph.removeFriend(3, 5, () -> true);
+
+        // then
+        assertThat(graph.recommendations(1, 10).userIds()).containsExactly(4, 6);
+    }
+
+    @Test
+    void shouldKeepCachedRecommendationsOfUnaffectedUsers() {
+        // given
+        FriendGraph.Recommendations cached = graph.recommendations(1, 10);
+
+        // when
+        graph.addFriend(5, 7, () -> { });
+        graph.addFriend(6, 7, () -> { });
+
+        // then
+        assertThat(graph.recommendations(1, 10)).isSameAs(cached);
+    }
+
+    @Test
+    void shouldApplyFriendshipChangesAfterPersisting() {
+        // when
+        graph.addFriend(7, 1, () -> { });
+        graph.addFriend(2, 3, () -> { });
+        boolean removed = graph.removeFriend(1, 2, () -> true);
+        boolean skipped = graph.removeFriend(1, 3, () -> false);
+
+        // then
+        assertThat(removed).isTrue();
+        assertThat(skipped).isFalse();
+        assertThat(graph.friends(7)).containsExactly(1);
+        assertThat(graph.friends(2)).containsExactly(3, 4);
+        assertThat(graph.friends(1)).containsExactly(3);
+        assertThat(graph.commonFriends(2, 3)).containsExactly(4);
+        assertThat(graph.degreesOfSeparation(7, 5, 6)).hasValue(3);
+    }
+}
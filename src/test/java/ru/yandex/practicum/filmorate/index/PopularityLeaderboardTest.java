@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PopularityLeaderboardTest {
+
+    @Mock
+    private FilmRepository filmRepository;
+
+    private PopularityLeaderboard leaderboard;
+
+    @BeforeEach
+    void setUp() {
+        when(filmRepository.findLikesCounts()).thenReturn(Map.of(1, 3, 2, 1, 3, 1, 4, 0));
+        when(filmRepository.findGenreIdsByFilm()).thenReturn(Map.of(1, new int[]{1, 2}, 2, new int[]{2}, 4, new int[]{2}));
+        when(filmRepository.findReleaseYears()).thenReturn(Map.of(1, 1999, 2, 2001, 3, 2001, 4, 2001));
+        leaderboard = new PopularityLeaderboard(filmRepository);
+        leaderboard.rebuild();
+    }
+
+    @Test
+    void shouldRankByLikesThenById() {
+        assertThat(leaderboard.top(10)).containsExactly(1, 2, 3, 4);
+        assertThat(leaderboard.top(2)).containsExactly(1, 2);
+    }
+
+    @Test
+    void shouldMoveFilmWhenLikesChange() {
+        // given
+        leaderboard.increment(3);
+        leaderboard.increment(3);
+        leaderboard.increment(3);
+
+        // when
+        leaderboard.decrement(1);
+
+        // then
+        assertThat(leaderboard.top(10)).containsExactly(3, 1, 2, 4);
+        assertThat(leaderboard.likes(3)).isEqualTo(4);
+    }
+
+    @Test
+    void shouldRegisterNewFilmWithoutLikes() {
+        // when
+        leaderboard.register(5);
+        leaderboard.register(5);
+
+        // then
+        assertThat(leaderboard.top(10)).containsExactly(1, 2, 3, 4, 5);
+        assertThat(leaderboard.likes(5)).isZero();
+    }
+
+    @Test
+    void shouldRankFilmsOnGenreAndYearShelves() {
+        assertThat(leaderboard.top(10, 2, null)).containsExactly(1, 2, 4);
+        assertThat(leaderboard.top(10, null, 2001)).containsExactly(2, 3, 4);
+        assertThat(leaderboard.top(10, 2, 2001)).containsExactly(2, 4);
+        assertThat(leaderboard.top(10, 3, null)).isEmpty();
+    }
+
+    @Test
+    void shouldMoveFilmBetweenShelvesOnReindex() {
+        // given
+        Film film = new Film();
+        film.setId(4);
+        film.setReleaseDate(LocalDate.of(1999, 5, 1));
+        Genre comedy = new Genre();
+        comedy.setId(1);
+        film.setGenres(Set.of(comedy));
+        leaderboard.increment(4);
+        leaderboard.increment(4);
+
+        // when
+        leaderboard.index(film);
+        leaderboard.increment(4);
+        leaderboard.increment(4);
+
+        // then
+        assertThat(leaderboard.top(10, 1, 1999)).containsExactly(4, 1);
+        assertThat(leaderboard.top(10, 2, null)).containsExactly(1, 2);
+        assertThat(leaderboard.top(10, null, 2001)).containsExactly(2, 3);
+    }
+}
@@ -0,0 +1,148 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SimilarFilmsIndexTest {
+
+    @Mock
+    private FilmRepository filmRepository;
+
+    private SimilarFilmsIndex similarIndex;
+
+    @BeforeEach
+    void setUp() {
+        when(filmRepository.findLikedFilmIdsByUser()).thenReturn(Map.of(
+                1, new int[]{1, 2, 3},
+                2, new int[]{1, 2},
+                3, new int[]{2, 3},
+                4, new int[]{4}));
+        similarIndex = new SimilarFilmsIndex(filmRepository, 20, 1_000, 2, 5_000, 3_600_000);
+        similarIndex.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        similarIndex.shutdown();
+    }
+
+    @Test
+    void shouldRankByCosineOverLikedUsers() {
+        assertThat(similarIndex.similar(1, 10)).containsExactly(2, 3);
+        assertThat(similarIndex.neighbours(1).scores()[0]).isCloseTo((float) (2 / Math.sqrt(6)), within(1e-6f));
+        assertThat(similarIndex.similar(2, 10)).containsExactly(1, 3);
+        assertThat(similarIndex.similar(2, 1)).containsExactly(1);
+        assertThat(similarIndex.similar(4, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldRecomputeOnlyDirtyFilmsAfterLike() {
+        // given
+        similarIndex.recordLike(1, 4, true);
+        assertThat(similarIndex.similar(4, 10)).isEmpty();
+
+        // when
+        similarIndex.refreshDirty();
+
+        // then
+        assertThat(similarIndex.similar(4, 10)).containsExactly(1);
+        assertThat(similarIndex.similar(1, 10)).containsExactly(2, 4, 3);
+
+        // when
+        similarIndex.recordLike(1, 4, false);
+        similarIndex.refreshDirty();
+
+        // then
+        assertThat(similarIndex.similar(4, 10)).isEmpty();
+        assertThat(similarIndex.similar(1, 10)).containsExactly(2, 3);
+    }
+
+    @Test
+    void shouldLeaveHeavyUsersOutOfBothOverlapAndLikeCounts() {
+        // given
+        similarIndex.shutdown();
+        similarIndex = new SimilarFilmsIndex(filmRepository, 20, 2, 2, 5_000, 3_600_000);
+
+        // when
+        similarIndex.rebuild();
+
+        // then
+        // пользователь 1 лайкнул три фильма и не учитывается: у фильма 1 остаётся один лайк, у фильма 2 — два
+        assertThat(similarIndex.similar(1, 10)).containsExactly(2);
+        assertThat(similarIndex.neighbours(1).scores()[0]).isCloseTo((float) (1 / Math.sqrt(2)), within(1e-6f));
+        assertThat(similarIndex.similar(3, 10)).containsExactly(2);
+        assertThat(similarIndex.neighbours(3).scores()[0]).isCloseTo((float) (1 / Math.sqrt(2)), within(1e-6f));
+    }
+
+    @Test
+    void shouldRecomputeUserFilmsWhenUserCrossesLikeLimit() {
+        // given
+        similarIndex.shutdown();
+        similarIndex = new SimilarFilmsIndex(filmRepository, 20, 2, 2, 5_000, 3_600_000);
+        similarIndex.rebuild();
+
+        // when
+        similarIndex.recordLike(3, 2, true);
+        similarIndex.refreshDirty();
+
+        // then
+        // теперь не учитывается и пользователь 2: у фильмов 2 и 3 остался один общий пользователь 3
+        assertThat(similarIndex.similar(1, 10)).isEmpty();
+        assertThat(similarIndex.similar(2, 10)).containsExactly(3);
+        assertThat(similarIndex.neighbours(2).scores()[0]).isCloseTo(1f, within(1e-6f));
+
+        // when
+        similarIndex.recordLike(3, 2, false);
+        similarIndex.refreshDirty();
+
+        // then
+        assertThat(similarIndex.similar(1, 10)).containsExactly(2);
+        assertThat(similarIndex.neighbours(2).scores()[0]).isCloseTo((float) (1 / Math.sqrt(2)), within(1e-6f));
+    }
+
+    @Test
+    void shouldReloadLikesFromRepositoryOnRebuild() {
+        // given
+        similarIndex.recordLike(4, 1, true);
+        similarIndex.refreshDirty();
+        assertThat(similarIndex.similar(4, 10)).isNotEmpty();
+
+        // when
+        similarIndex.rebuild();
+
+        // then
+        assertThat(similarIndex.similar(4, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldKeepLikeRecordedWhileSnapshotIsLoading() {
+        // given
+        when(filmRepository.findLikedFilmIdsByUser()).thenAnswer(invocation -> {
+            // лайк записан в БД уже после того, как снимок прочитан
+            similarIndex.recordLike(4, 3, true);
+            return Map.of(
+                    1, new int[]{1, 2, 3},
+                    2, new int[]{1, 2},
+                    3, new int[]{2, 3},
+                    4, new int[]{4});
+        });
+
+        // when
+        similarIndex.rebuild();
+
+        // then
+        assertThat(similarIndex.similar(4, 10)).containsExactly(3, 2);
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.yandex.practicum.filmorate.model.HourlyLikes;
+import ru.yandex.practicum.filmorate.repository.FilmRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TrendingIndexTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 10, 12, 30);
+
+    @Mock
+    private FilmRepository filmRepository;
+
+    private TrendingIndex trending;
+
+    @BeforeEach
+    void setUp() {
+        when(filmRepository.findHourlyLikesSince(any())).thenReturn(List.of(
+                new HourlyLikes(1, NOW.withMinute(0), 1),
+                new HourlyLikes(2, NOW.withMinute(0).minusHours(3), 4),
+                new HourlyLikes(3, NOW.withMinute(0).minusHours(30), 9)));
+        trending = new TrendingIndex(filmRepository, new int[]{1, 24, 168});
+        trending.rebuild(NOW);
+    }
+
+    @Test
+    void shouldRankFilmsWithinWindow() {
+        assertThat(trending.top(1, 10, NOW)).containsExactly(1);
+        assertThat(trending.top(24, 10, NOW)).containsExactly(2, 1);
+        assertThat(trending.top(168, 10, NOW)).containsExactly(3, 2, 1);
+        assertThat(trending.top(168, 2, NOW)).containsExactly(3, 2);
+    }
+
+    @Test
+    void shouldExpireBucketsWhenHourChanges() {
+        // given
+        LocalDateTime later = NOW.plusHours(22);
+
+        // when
+        List<Integer> lastHour = trending.top(1, 10, later);
+        List<Integer> lastDay = trending.top(24, 10, later);
+        int weekLikes = trending.likes(168, 3);
+        List<Integer> nextWeek = trending.top(168, 10, NOW.plusDays(8));
+
+        // then
+        assertThat(lastHour).isEmpty();
+        assertThat(lastDay).containsExactly(1);
+        assertThat(weekLikes).isEqualTo(9);
+        assertThat(nextWeek).isEmpty();
+    }
+
+    @Test
+    void shouldRemoveLikeFromBucketOfOriginalLike() {
+        // when
+        trending.record(1, 1, NOW, NOW);
+        trending.record(1, 1, NOW, NOW);
+        trending.record(2, -1, NOW.minusHours(3), NOW);
+
+        // then
+        assertThat(trending.top(24, 10, NOW)).containsExactly(1, 2);
+        assertThat(trending.likes(24, 2)).isEqualTo(3);
+        assertThat(trending.likes(1, 2)).isZero();
+    }
+}
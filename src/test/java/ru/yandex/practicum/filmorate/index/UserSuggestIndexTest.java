@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.UserRepository;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserSuggestIndexTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private FriendGraph friendGraph;
+    private UserSuggestIndex suggestIndex;
+
+    @BeforeEach
+    void setUp() {
+        // подписчики: у 3 — двое, у 1 — один, у остальных никого
+        when(userRepository.findAllFriendIds()).thenReturn(Map.of(
+                2, new int[]{1, 3},
+                4, new int[]{3}));
+        when(userRepository.findAllIds()).thenReturn(new int[]{1, 2, 3, 4, 5});
+        doAnswer(invocation -> {
+            Consumer<User> consumer = invocation.getArgument(0);
+            consumer.accept(user(1, "Алёна"));
+            consumer.accept(user(2, "алексей"));
+            consumer.accept(user(3, "Алена_2"));
+            consumer.accept(user(4, "neo"));
+            consumer.accept(user(5, "neon"));
+            return null;
+        }).when(userRepository).exportAll(any());
+        friendGraph = new FriendGraph(userRepository);
+        friendGraph.rebuild();
+        suggestIndex = new UserSuggestIndex(userRepository, friendGraph, 2);
+        suggestIndex.rebuild();
+    }
+
+    @Test
+    void shouldSuggestMostFollowedLoginsWithPrefix() {
+        assertThat(suggestIndex.suggest("ал", 2)).containsExactly(3, 1);
+        assertThat(suggestIndex.suggest("АЛЁН", 2)).containsExactly(3, 1);
+        assertThat(suggestIndex.suggest("алек", 2)).containsExactly(2);
+        assertThat(suggestIndex.suggest("neo", 1)).containsExactly(4);
+        assertThat(suggestIndex.suggest("morpheus", 2)).isEmpty();
+    }
+
+    @Test
+    void shouldFollowFriendshipAndLoginChanges() {
+        // given
+        friendGraph.addFriend(1, 2, () -> { });
+        friendGraph.addFriend(4, 2, () -> { });
+        friendGraph.addFriend(5, 2, () -> { });
+        friendGraph.removeFriend(2, 3, () -> true);
+        friendGraph.addFriend(4, 5, () -> { });
+
+        // when
+        suggestIndex.index(user(4, "алиса"));
+
+        // then
+        assertThat(suggestIndex.suggest("ал", 2)).containsExactly(2, 1);
+        assertThat(suggestIndex.suggest("але", 2)).containsExactly(2, 1);
+        assertThat(suggestIndex.suggest("али", 2)).containsExactly(4);
+        assertThat(suggestIndex.suggest("neo", 2)).containsExactly(5);
+    }
+
+    private static User user(int id, String login) {
+        User user = new User();
+        user.setId(id);
+        user.setLogin(login);
+        return user;
+    }
+}
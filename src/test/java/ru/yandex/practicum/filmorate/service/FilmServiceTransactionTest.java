@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.index.PopularityLeaderboard;
+import ru.yandex.practicum.filmorate.index.UserSuggestIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DisplayName("FilmService transactions")
+class FilmServiceTransactionTest {
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final TransactionTemplate transactionTemplate;
+    private final PopularityLeaderboard leaderboard;
+    private final FilmSearchIndex searchIndex;
+    private final FilmSuggestIndex filmSuggestIndex;
+    private final UserSuggestIndex userSuggestIndex;
+
+    @Test
+    @DisplayName("should not index a film created in a rolled back transaction")
+    public void should_not_index_film_after_rollback() {
+        // when
+        Film created = transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            return filmService.createFilm(film("Откатный фильм"));
+        });
+
+        // then
+        assertThat(searchIndex.search("откатный", 10)).isEmpty();
+        assertThat(filmSuggestIndex.suggest("откатн", 10)).isEmpty();
+        assertThat(leaderboard.top(1_000)).doesNotContain(created.getId());
+    }
+
+    @Test
+    @DisplayName("should index a film once the transaction commits")
+    public void should_index_film_after_commit() {
+        // when
+        Film created = transactionTemplate.execute(status -> filmService.createFilm(film("Закоммиченный фильм")));
+
+        // then
+        assertThat(searchIndex.search("закоммиченный", 10)).containsExactly(created.getId());
+        assertThat(filmSuggestIndex.suggest("закоммич", 10)).containsExactly(created.getId());
+        assertThat(leaderboard.top(1_000)).contains(created.getId());
+    }
+
+    @Test
+    @DisplayName("should not suggest a user created in a rolled back transaction")
+    public void should_not_index_user_after_rollback() {
+        // when
+        transactionTemplate.executeWithoutResult(status -> {
+            userService.createUser(user("rolledback"));
+            status.setRollbackOnly();
+        });
+
+        // then
+        assertThat(userSuggestIndex.suggest("rolledb", 10)).isEmpty();
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        film.setMpaRating(new Mpa(1, null, null));
+        return film;
+    }
+
+    private static User user(String login) {
+        User user = new User();
+        user.setLogin(login);
+        user.setEmail(login + "@example.com");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
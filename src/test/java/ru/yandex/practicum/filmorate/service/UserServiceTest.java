@@ -5,15 +5,23 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.UserSuggestIndex;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.repository.UserRepository;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -22,11 +30,15 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    private FriendGraph friendGraph;
+    private UserSuggestIndex suggestIndex;
     private UserService userService;
 
     @BeforeEach
     void setUp() {
-        userService = new UserServiceImpl(userRepository);
+        friendGraph = new FriendGraph(userRepository);
+        suggestIndex = new UserSuggestIndex(userRepository, friendGraph, 10);
+        userService = new UserServiceImpl(userRepository, friendGraph, suggestIndex, false, true);
     }
 
     @Test
@@ -115,4 +127,70 @@ class UserServiceTest {
         // then
         assertThat(result).hasSize(2);
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldChangeFriendsVersionWhenFriendChanges() {
+        // given
+        when(userRepository.findFriendVersions(1))
+                .thenReturn(Map.of(2, 0L))
+                .thenReturn(Map.of(2, 0L))
+                .thenReturn(Map.of(2, 1L));
+
+        // when
+        long first = userService.getFriendsVersion(1);
+        long same = userService.getFriendsVersion(1);
+        long changed = userService.getFriendsVersion(1);
+
+        // then
+        assertThat(same).isEqualTo(first);
+        assertThat(changed).isNotEqualTo(first);
+    }
+
+    @Test
+    void shouldRankSuggestedUsersByFollowersAfterAddingFriend() {
+        // given
+        User neo = user(1, "neo");
+        User neon = user(2, "neon");
+        User trinity = user(3, "trinity");
+        when(userRepository.findAllFriendIds()).thenReturn(Map.of());
+        when(userRepository.findAllIds()).thenReturn(new int[]{1, 2, 3});
+        doAnswer(invocation -> {
+            Consumer<User> consumer = invocation.getArgument(0);
+            consumer.accept(neo);
+            consumer.accept(neon);
+            consumer.accept(trinity);
+            return null;
+        }).when(userRepository).exportAll(any());
+        when(userRepository.existsAll(List.of(3, 2))).thenReturn(true);
+        when(userRepository.findByIds(any())).thenAnswer(invocation -> invocation.<List<Integer>>getArgument(0).stream()
+                .map(Map.of(1, neo, 2, neon, 3, trinity)::get)
+                .toList());
+        friendGraph.rebuild();
+        suggestIndex.rebuild();
+        List<User> before = userService.suggestUsers("ne", 2);
+
+        // when
+        userService.addFriend(3, 2);
+
+        // then
+        assertThat(before).extracting(User::getLogin).containsExactly("neo", "neon");
+        assertThat(userService.suggestUsers("ne", 2)).extracting(User::getLogin).containsExactly("neon", "neo");
+        verify(userRepository).addFriend(3, 2);
+    }
+
+    @Test
+    void shouldRejectInvalidSuggestParameters() {
+        assertThatThrownBy(() -> userService.suggestUsers(" ", 5)).isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> userService.suggestUsers("ne", 0)).isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> userService.suggestUsers("ne", 11))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Параметр count должен быть от 1 до 10");
+    }
+
+    private static User user(int id, String login) {
+        User user = new User();
+        user.setId(id);
+        user.setLogin(login);
+        return user;
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IntArraysTest {
+
+    @Test
+    void shouldIntersectSortedArrays() {
+        assertThat(IntArrays.intersect(new int[]{1, 3, 5, 7}, new int[]{2, 3, 4, 7, 9})).containsExactly(3, 7);
+        assertThat(IntArrays.intersect(new int[]{}, new int[]{1, 2})).isEmpty();
+        assertThat(IntArrays.intersect(new int[]{10}, new int[]{1, 2, 3})).isEmpty();
+    }
+
+    @Test
+    void shouldMatchNaiveIntersectionForSkewedSizes() {
+        // given
+        int[] large = IntStream.range(0, 100_000).map(i -> i * 3).toArray();
+        int[] small = {0, 2, 9, 299_997, 299_998, 150_000, 42};
+        Arrays.sort(small);
+
+        // when
+        int[] result = IntArrays.intersect(small, large);
+
+        // then
+        assertThat(result).containsExactly(Arrays.stream(small).filter(v -> v % 3 == 0 && v < 300_000).toArray());
+    }
+
+    @Test
+    void shouldInsertAndRemoveKeepingOrder() {
+        int[] values = {2, 5};
+        assertThat(IntArrays.insert(values, 3)).containsExactly(2, 3, 5);
+        assertThat(IntArrays.insert(values, 5)).isSameAs(values);
+        assertThat(IntArrays.remove(values, 2)).containsExactly(5);
+        assertThat(IntArrays.remove(values, 4)).isSameAs(values);
+    }
+}
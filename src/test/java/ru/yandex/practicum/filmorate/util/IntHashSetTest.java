@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IntHashSetTest {
+
+    @Test
+    void shouldKeepValuesDistinctAndListThemInOrder() {
+        // given
+        IntHashSet set = new IntHashSet();
+
+        // when
+        boolean first = set.add(5);
+        set.add(0);
+        set.add(-3);
+        set.add(9);
+        boolean duplicate = set.add(5);
+
+        // then
+        assertThat(first).isTrue();
+        assertThat(duplicate).isFalse();
+        assertThat(set.toArray()).containsExactly(-3, 0, 5, 9);
+        assertThat(set.size()).isEqualTo(4);
+        assertThat(set).isEqualTo(IntHashSet.of(9, 5, 0, -3));
+    }
+
+    @Test
+    void shouldMatchHashSetUnderRandomAddsAndRemoves() {
+        // given
+        IntHashSet set = new IntHashSet();
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(42);
+
+        // when
+        for (int i = 0; i < 100_000; i++) {
+            int value = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertThat(set.remove(value)).isEqualTo(expected.remove(value));
+            } else {
+                assertThat(set.add(value)).isEqualTo(expected.add(value));
+            }
+        }
+
+        // then
+        assertThat(set.size()).isEqualTo(expected.size());
+        for (int value = 0; value < 2_000; value++) {
+            assertThat(set.contains(value)).isEqualTo(expected.contains(value));
+        }
+        assertThat(set.copy().toArray()).containsExactly(expected.stream().sorted().mapToInt(Integer::intValue).toArray());
+    }
+}
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SortedIntSetTest {
+
+    @Test
+    void shouldKeepValuesSortedAndDistinct() {
+        // given
+        SortedIntSet set = new SortedIntSet();
+
+        // when
+        boolean first = set.add(5);
+        set.add(1);
+        set.add(9);
+        set.add(3);
+        boolean duplicate = set.add(5);
+
+        // then
+        assertThat(first).isTrue();
+        assertThat(duplicate).isFalse();
+        assertThat(set.toArray()).containsExactly(1, 3, 5, 9);
+        assertThat(set.size()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldFindAndRemoveValues() {
+        // given
+        SortedIntSet set = SortedIntSet.of(7, 2, 2, 11);
+
+        // when
+        boolean removed = set.remove(2);
+        boolean missing = set.remove(3);
+
+        // then
+        assertThat(removed).isTrue();
+        assertThat(missing).isFalse();
+        assertThat(set.contains(7)).isTrue();
+        assertThat(set.contains(2)).isFalse();
+        assertThat(set.toArray()).containsExactly(7, 11);
+    }
+
+    @Test
+    void shouldCopyIndependently() {
+        // given
+        SortedIntSet set = SortedIntSet.of(1, 2);
+
+        // when
+        SortedIntSet copy = set.copy();
+        copy.add(3);
+
+        // then
+        assertThat(set).isEqualTo(SortedIntSet.of(1, 2));
+        assertThat(copy.toArray()).containsExactly(1, 2, 3);
+    }
+}
@@ -71,3 +71,6 @@ INSERT INTO film_likes (film_id, user_id) VALUES
 (1003, 1003),
 (1004, 1001),
 (1005, 1004);
+
+-- Synchronize materialized like counters
+UPDATE films f SET likes_count = (SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.id);